@@ -0,0 +1,56 @@
+package com.unibet.maven.benchmark;
+
+/*
+ * Copyright 2014 North Development AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.unibet.maven.MetadataLookup;
+import org.apache.maven.artifact.Artifact;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Microbenchmarks of metadata artifact coordinate creation done for every verified dependency.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class ArtifactCoordinateBenchmark {
+    private final Artifact dependency = SyntheticRepository.createArtifact("com.example.group", "artifact", "1.0.0",
+            "jar", null);
+
+    @Benchmark
+    public Artifact createMetadataArtifact() {
+        return MetadataLookup.createMetadataArtifact(dependency.getGroupId(), dependency.getArtifactId(),
+                dependency.getVersion());
+    }
+
+    @Benchmark
+    public String metadataArtifactId() {
+        return createMetadataArtifact().getId();
+    }
+}
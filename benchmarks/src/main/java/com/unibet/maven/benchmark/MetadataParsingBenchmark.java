@@ -0,0 +1,79 @@
+package com.unibet.maven.benchmark;
+
+/*
+ * Copyright 2014 North Development AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.unibet.maven.domain.Metadata;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Microbenchmarks of metadata JSON parsing as done by the verify goal.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class MetadataParsingBenchmark {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private byte[] content;
+    private File file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Metadata metadata = new Metadata();
+        metadata.formatVersion = SyntheticRepository.FORMAT_VERSION;
+        metadata.message = "Artifact has been deprecated! Please consider updating the version!";
+        metadata.fail = true;
+        content = OBJECT_MAPPER.writeValueAsBytes(metadata);
+        file = File.createTempFile("benchmark", "-metadata.json");
+        Files.write(file.toPath(), content);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.delete(file.toPath());
+    }
+
+    @Benchmark
+    public Metadata parseBytes() throws IOException {
+        return OBJECT_MAPPER.readValue(content, Metadata.class);
+    }
+
+    @Benchmark
+    public Metadata parseFile() throws IOException {
+        return OBJECT_MAPPER.readValue(file, Metadata.class);
+    }
+}
@@ -0,0 +1,93 @@
+package com.unibet.maven.benchmark;
+
+/*
+ * Copyright 2014 North Development AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.unibet.maven.MetadataServiceClient;
+import com.unibet.maven.domain.Metadata;
+import com.unibet.maven.domain.MetadataIndex;
+import org.apache.maven.artifact.Artifact;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Benchmark of a single batch metadata service query of all {@link SyntheticRepository} dependencies served by
+ * {@link MetadataServiceServer}. Compare with {@link VerifyPathBenchmark} of the same repository size.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class MetadataServiceBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int gavs;
+
+    @Param({"0.01", "0.1"})
+    public double hitRatio;
+
+    private SyntheticRepository repository;
+    private MetadataServiceServer server;
+    private MetadataServiceClient client;
+    private List<String> keys;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        File directory = Files.createTempDirectory("synthetic-repository").toFile();
+        repository = SyntheticRepository.generate(directory, gavs, hitRatio, 0);
+        server = new MetadataServiceServer(directory);
+        int port = server.start(0, 1);
+        client = new MetadataServiceClient(new URL("http://localhost:" + port + "/"), 30000);
+        keys = new ArrayList<>(repository.getDependencies().size());
+        for (Artifact dependency : repository.getDependencies()) {
+            keys.add(MetadataIndex.key(dependency.getGroupId(), dependency.getArtifactId(),
+                    dependency.getVersion()));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        server.stop();
+        SyntheticRepository.delete(repository.getBaseDirectory());
+    }
+
+    @Benchmark
+    public Map<String, Metadata> batchQuery() throws IOException {
+        return client.query(keys);
+    }
+}
@@ -0,0 +1,118 @@
+package com.unibet.maven.benchmark;
+
+/*
+ * Copyright 2014 North Development AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.unibet.maven.domain.Metadata;
+import com.unibet.maven.domain.MetadataQuery;
+import org.codehaus.jackson.map.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * <p>Minimal metadata service answering batch queries of the verify goal from a repository directory in default
+ * layout, e.g. a {@link SyntheticRepository} or a local repository. Used as a local stand-in of the real
+ * service.</p>
+ */
+public class MetadataServiceServer implements HttpHandler {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final File baseDirectory;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public MetadataServiceServer(File baseDirectory) {
+        this.baseDirectory = baseDirectory;
+    }
+
+    /**
+     * Starts the server on the given port, zero selects any free port
+     *
+     * @return port the server listens on
+     */
+    public int start(int port, int threads) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        executor = Executors.newFixedThreadPool(threads);
+        server.setExecutor(executor);
+        server.createContext("/", this);
+        server.start();
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_METHOD, -1);
+                return;
+            }
+            MetadataQuery query;
+            try (InputStream in = exchange.getRequestBody()) {
+                query = OBJECT_MAPPER.readValue(in, MetadataQuery.class);
+            } catch (IOException e) {
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_REQUEST, -1);
+                return;
+            }
+
+            MetadataQuery result = new MetadataQuery();
+            result.keys = null;
+            for (String key : query.keys) {
+                String[] parts = key.split(":");
+                if (parts.length != 3 || key.contains("..") || key.contains("/") || key.contains("\\")) {
+                    continue;
+                }
+                File file = new File(baseDirectory, SyntheticRepository.path(parts[0], parts[1], parts[2]));
+                if (file.isFile()) {
+                    result.entries.put(key, OBJECT_MAPPER.readValue(file, Metadata.class));
+                }
+            }
+
+            byte[] content = OBJECT_MAPPER.writeValueAsBytes(result);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, content.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(content);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: MetadataServiceServer directory port");
+            System.exit(1);
+        }
+        MetadataServiceServer server = new MetadataServiceServer(new File(args[0]));
+        int port = server.start(Integer.parseInt(args[1]), Runtime.getRuntime().availableProcessors());
+        System.out.println("Serving metadata of " + args[0] + " at http://localhost:" + port + "/");
+    }
+}
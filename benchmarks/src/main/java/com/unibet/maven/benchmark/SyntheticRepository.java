@@ -0,0 +1,167 @@
+package com.unibet.maven.benchmark;
+
+/*
+ * Copyright 2014 North Development AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.unibet.maven.AbstractDependencyMetadataMojo;
+import com.unibet.maven.domain.Metadata;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.repository.ArtifactRepositoryPolicy;
+import org.apache.maven.artifact.repository.MavenArtifactRepository;
+import org.apache.maven.artifact.repository.layout.DefaultRepositoryLayout;
+import org.apache.maven.artifact.versioning.VersionRange;
+import org.codehaus.jackson.map.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * <p>File based stand-in of a remote repository in default layout. Only the metadata artifacts of a configurable
+ * share of generated dependencies are written, the rest of the dependencies have no metadata.</p>
+ * <p>Can be run standalone to generate a repository usable through a <code>file://</code> URL:
+ * <code>SyntheticRepository directory gavs hitRatio</code></p>
+ */
+public class SyntheticRepository {
+    public static final int FORMAT_VERSION = Integer.parseInt(AbstractDependencyMetadataMojo.DEFAULT_FORMAT_VERSION);
+
+    private static final int GROUPS = 50;
+    private static final int VERSIONS = 10;
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final File baseDirectory;
+    private final List<Artifact> dependencies;
+    private final int metadataArtifacts;
+
+    private SyntheticRepository(File baseDirectory, List<Artifact> dependencies, int metadataArtifacts) {
+        this.baseDirectory = baseDirectory;
+        this.dependencies = dependencies;
+        this.metadataArtifacts = metadataArtifacts;
+    }
+
+    /**
+     * Generates repository content
+     *
+     * @param baseDirectory repository directory
+     * @param gavs          number of generated dependencies
+     * @param hitRatio      share of dependencies having metadata artifact, between 0 and 1
+     * @param seed          random seed, same seed generates same repository
+     */
+    public static SyntheticRepository generate(File baseDirectory, int gavs, double hitRatio, long seed)
+            throws IOException {
+        Random random = new Random(seed);
+        Metadata metadata = new Metadata();
+        metadata.formatVersion = FORMAT_VERSION;
+        metadata.message = "Artifact has been deprecated! Please consider updating the version!";
+        byte[] content = OBJECT_MAPPER.writeValueAsBytes(metadata);
+
+        List<Artifact> dependencies = new ArrayList<>(gavs);
+        int metadataArtifacts = 0;
+        for (int i = 0; i < gavs; i++) {
+            String groupId = "com.example.group" + (i % GROUPS);
+            String artifactId = "artifact-" + i;
+            String version = "1." + (i % VERSIONS) + ".0";
+            dependencies.add(createArtifact(groupId, artifactId, version, "jar", null));
+            if (random.nextDouble() < hitRatio) {
+                File file = new File(baseDirectory, path(groupId, artifactId, version));
+                file.getParentFile().mkdirs();
+                Files.write(file.toPath(), content);
+                metadataArtifacts++;
+            }
+        }
+        Collections.sort(dependencies);
+        return new SyntheticRepository(baseDirectory, dependencies, metadataArtifacts);
+    }
+
+    public static Artifact createArtifact(String groupId, String artifactId, String version, String type,
+                                          String classifier) {
+        return new DefaultArtifact(groupId, artifactId, VersionRange.createFromVersion(version),
+                Artifact.SCOPE_COMPILE, type, classifier, new DefaultArtifactHandler(type));
+    }
+
+    /**
+     * @return metadata artifact path relative to repository directory
+     */
+    public static String path(String groupId, String artifactId, String version) {
+        return groupId.replace('.', File.separatorChar) + File.separator + artifactId + File.separator + version +
+                File.separator + artifactId + "-" + version + "-" +
+                AbstractDependencyMetadataMojo.METADATA_ARTIFACT_CLASSIFIER + "." +
+                AbstractDependencyMetadataMojo.METADATA_ARTIFACT_TYPE;
+    }
+
+    /**
+     * @return repository usable as remote repository of the verify goal through its <code>file://</code> URL
+     */
+    public ArtifactRepository toArtifactRepository() {
+        ArtifactRepositoryPolicy policy = new ArtifactRepositoryPolicy(true,
+                ArtifactRepositoryPolicy.UPDATE_POLICY_DAILY, ArtifactRepositoryPolicy.CHECKSUM_POLICY_IGNORE);
+        return new MavenArtifactRepository("synthetic", baseDirectory.toURI().toString(),
+                new DefaultRepositoryLayout(), policy, policy);
+    }
+
+    public static void delete(File directory) throws IOException {
+        if (!directory.exists()) {
+            return;
+        }
+        Files.walkFileTree(directory.toPath(), new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    public File getBaseDirectory() {
+        return baseDirectory;
+    }
+
+    public List<Artifact> getDependencies() {
+        return dependencies;
+    }
+
+    public int getMetadataArtifacts() {
+        return metadataArtifacts;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: SyntheticRepository directory gavs hitRatio");
+            System.exit(1);
+        }
+        SyntheticRepository repository = generate(new File(args[0]), Integer.parseInt(args[1]),
+                Double.parseDouble(args[2]), 0);
+        System.out.println("Generated " + repository.getMetadataArtifacts() + " metadata artifacts for " +
+                repository.getDependencies().size() + " dependencies in " + repository.getBaseDirectory());
+    }
+}
@@ -0,0 +1,126 @@
+package com.unibet.maven.benchmark;
+
+/*
+ * Copyright 2014 North Development AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.unibet.maven.ConcurrentMetadataResolver;
+import com.unibet.maven.MetadataArtifactResolver;
+import com.unibet.maven.MetadataFinding;
+import com.unibet.maven.MetadataLookup;
+import com.unibet.maven.RepositoryRouter;
+import com.unibet.maven.cache.SessionResolutionCache;
+import com.unibet.maven.report.ExecutionStatistics;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.repository.internal.MavenRepositorySystemUtils;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.connector.basic.BasicRepositoryConnectorFactory;
+import org.eclipse.aether.impl.DefaultServiceLocator;
+import org.eclipse.aether.repository.LocalRepository;
+import org.eclipse.aether.spi.connector.RepositoryConnectorFactory;
+import org.eclipse.aether.spi.connector.transport.TransporterFactory;
+import org.eclipse.aether.transport.file.FileTransporterFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>End-to-end benchmark of the verify goal resolution loop against a generated {@link SyntheticRepository}. The
+ * lookup of the verify goal resolves metadata artifacts through a repository system using the <code>file://</code>
+ * URL of the synthetic repository as remote repository. Every invocation starts with an empty local repository and
+ * session cache, so metadata artifacts are downloaded and missing ones are looked up remotely.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class VerifyPathBenchmark {
+
+    @Param({"100", "1000", "10000", "50000"})
+    public int gavs;
+
+    @Param({"0.01", "0.1", "0.5"})
+    public double hitRatio;
+
+    @Param({"1", "4", "16"})
+    public int threads;
+
+    private SyntheticRepository repository;
+    private RepositorySystem repositorySystem;
+    private RepositoryRouter repositoryRouter;
+    private File localRepository;
+    private MetadataLookup lookup;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        File directory = Files.createTempDirectory("synthetic-repository").toFile();
+        repository = SyntheticRepository.generate(directory, gavs, hitRatio, 0);
+        repositoryRouter = new RepositoryRouter(null, Collections.singletonList(repository.toArtifactRepository()));
+
+        DefaultServiceLocator locator = MavenRepositorySystemUtils.newServiceLocator();
+        locator.addService(RepositoryConnectorFactory.class, BasicRepositoryConnectorFactory.class);
+        locator.addService(TransporterFactory.class, FileTransporterFactory.class);
+        repositorySystem = locator.getService(RepositorySystem.class);
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpInvocation() throws IOException {
+        localRepository = Files.createTempDirectory("local-repository").toFile();
+        DefaultRepositorySystemSession repositorySession = MavenRepositorySystemUtils.newSession();
+        repositorySession.setLocalRepositoryManager(repositorySystem.newLocalRepositoryManager(repositorySession,
+                new LocalRepository(localRepository)));
+        lookup = new MetadataLookup(SyntheticRepository.FORMAT_VERSION,
+                new MetadataArtifactResolver(repositorySystem, repositorySession), repositoryRouter,
+                new SessionResolutionCache(), new ExecutionStatistics("verify"));
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDownInvocation() throws IOException {
+        SyntheticRepository.delete(localRepository);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        SyntheticRepository.delete(repository.getBaseDirectory());
+    }
+
+    @Benchmark
+    public List<MetadataFinding> verify() throws MojoExecutionException {
+        ConcurrentMetadataResolver resolver = new ConcurrentMetadataResolver(Executors.newFixedThreadPool(threads),
+                false);
+        return resolver.resolve(repository.getDependencies(), lookup);
+    }
+}
@@ -16,19 +16,33 @@ package com.unibet.maven;
  * limitations under the License.
  */
 
+import com.unibet.maven.domain.MetadataIndex;
+import com.unibet.maven.report.ExecutionStatistics;
+import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.factory.ArtifactFactory;
 import org.apache.maven.artifact.metadata.ArtifactMetadataSource;
 import org.apache.maven.artifact.repository.ArtifactRepository;
-import org.apache.maven.artifact.resolver.ArtifactResolver;
+import org.apache.maven.artifact.resolver.ArtifactNotFoundException;
+import org.apache.maven.artifact.resolver.ArtifactResolutionException;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 import org.codehaus.jackson.map.ObjectMapper;
+import org.eclipse.aether.RepositorySystem;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * <p>Abstract for dependency metadata plugin mojos</p>
@@ -37,13 +51,33 @@ import java.util.List;
  */
 public abstract class AbstractDependencyMetadataMojo extends AbstractMojo {
     protected final Logger logger = LoggerFactory.getLogger(this.getClass());
+    /**
+     * Metadata format version supported unless configured otherwise
+     */
+    public static final String DEFAULT_FORMAT_VERSION = "2";
     public static final String METADATA_ARTIFACT_TYPE = "json";
     public static final String METADATA_ARTIFACT_CLASSIFIER = "metadata";
+    public static final String METADATA_INDEX_CLASSIFIER = "metadata-index";
+    public static final String METADATA_FILTER_CLASSIFIER = "metadata-filter";
+    public static final String METADATA_FILTER_TYPE = "bin";
+    /**
+     * Suffix of the artifact id version range rules metadata artifact is published under, so the rules version never
+     * shows up in versions metadata of the library itself
+     */
+    public static final String METADATA_RULES_ARTIFACT_SUFFIX = "-metadata-rules";
+    /**
+     * Snapshot version of the version range rules metadata artifact. Every deployment adds a new snapshot, which
+     * verifying builds pick up according to the snapshot update policy of their repositories.
+     */
+    public static final String METADATA_RULES_VERSION = "rules-SNAPSHOT";
     protected static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
 
     @Parameter(defaultValue = "${project}", readonly = true)
     protected MavenProject project;
 
+    @Parameter(defaultValue = "${session}", readonly = true)
+    protected MavenSession session;
+
     @Parameter(defaultValue = "${localRepository}", readonly = true)
     protected ArtifactRepository localRepository;
 
@@ -53,19 +87,179 @@ public abstract class AbstractDependencyMetadataMojo extends AbstractMojo {
     /**
      * This variable will be used to determine whether plugin supports received metadata format
      */
-    @Parameter(property = "dependency.metadata.formatVersion", defaultValue = "2")
+    @Parameter(property = "dependency.metadata.formatVersion", defaultValue = DEFAULT_FORMAT_VERSION)
     protected int formatVersion;
 
-    @Component
-    protected ArtifactFactory artifactFactory;
+    /**
+     * Maximum number of metadata artifacts resolved concurrently
+     */
+    @Parameter(property = "dependency.metadata.threads", defaultValue = "4")
+    protected int threads;
+
+    /**
+     * Rules mapping group id prefixes to ids of remote repositories allowed to host their metadata. If any route is
+     * defined, metadata of group ids without a route is looked up in the local repository only.
+     */
+    @Parameter
+    protected List<RepositoryRoute> repositoryRoutes;
+
+    /**
+     * Metadata index artifacts in <code>groupId:artifactId:version</code> format generated by the index goal.
+     * Dependencies covered by an index are verified locally without resolving their metadata artifacts. Use snapshot
+     * versions to have the index re-fetched according to the repository update policy only when it has changed.
+     */
+    @Parameter(property = "dependency.metadata.indexes")
+    protected List<String> indexes;
+
+    /**
+     * Metadata filter artifacts in <code>groupId:artifactId:version</code> format generated by the filter goal.
+     * Metadata artifacts of dependencies covered by a filter are looked up remotely only if the filter reports them
+     * as possibly existing.
+     */
+    @Parameter(property = "dependency.metadata.filters")
+    protected List<String> filters;
+
+    /**
+     * If true machine readable JSON execution report is written to <code>dependency-metadata</code> directory of the
+     * build directory in addition to the summary displayed at the end of the goal.
+     */
+    @Parameter(property = "dependency.metadata.report", defaultValue = "false")
+    protected boolean writeReport;
 
     @Component
-    protected ArtifactResolver artifactResolver;
+    protected ArtifactFactory artifactFactory;
 
     @Component
     protected ArtifactMetadataSource artifactMetadataSource;
 
     @Component
-    protected ArtifactResolver resolver;
+    protected RepositorySystem repositorySystem;
 
+    /**
+     * Must be called by the thread executing the mojo, the returned resolver may then be used by any thread
+     *
+     * @return resolver bound to the repository system session of the build
+     */
+    protected MetadataArtifactResolver createArtifactResolver() {
+        return new MetadataArtifactResolver(repositorySystem, session.getRepositorySession());
+    }
+
+    /**
+     * @return artifact id of the version range rules metadata artifact of the given artifact id
+     */
+    public static String getRulesArtifactId(String artifactId) {
+        return artifactId + METADATA_RULES_ARTIFACT_SUFFIX;
+    }
+
+    /**
+     * Resolves and parses metadata index artifacts
+     *
+     * @return metadata indexes keyed by resolved index artifacts in configuration order
+     */
+    protected Map<Artifact, MetadataIndex> resolveMetadataIndexes(RepositoryRouter repositoryRouter,
+                                                                  MetadataArtifactResolver artifactResolver)
+            throws MojoExecutionException {
+        Map<Artifact, MetadataIndex> result = new LinkedHashMap<>();
+        if (indexes == null) {
+            return result;
+        }
+        for (String coordinates : indexes) {
+            Artifact indexArtifact = resolveCoordinates(coordinates, METADATA_ARTIFACT_TYPE,
+                    METADATA_INDEX_CLASSIFIER, repositoryRouter, artifactResolver);
+            MetadataIndex index;
+            try {
+                index = OBJECT_MAPPER.readValue(indexArtifact.getFile(), MetadataIndex.class);
+            } catch (IOException e) {
+                throw new MojoExecutionException("Failed parsing metadata index file " + indexArtifact.getFile(), e);
+            }
+            logger.debug("Metadata index {} covering group '{}' has {} entries", indexArtifact, index.groupId,
+                    index.entries.size());
+            result.put(indexArtifact, index);
+        }
+        return result;
+    }
+
+    /**
+     * Resolves and reads metadata filter artifacts
+     *
+     * @return metadata filters in configuration order
+     */
+    protected List<MetadataBloomFilter> resolveMetadataFilters(RepositoryRouter repositoryRouter,
+                                                               MetadataArtifactResolver artifactResolver)
+            throws MojoExecutionException {
+        List<MetadataBloomFilter> result = new ArrayList<>();
+        if (filters == null) {
+            return result;
+        }
+        for (String coordinates : filters) {
+            Artifact filterArtifact = resolveCoordinates(coordinates, METADATA_FILTER_TYPE,
+                    METADATA_FILTER_CLASSIFIER, repositoryRouter, artifactResolver);
+            MetadataBloomFilter filter;
+            try {
+                filter = MetadataBloomFilter.readFrom(filterArtifact.getFile());
+            } catch (IOException e) {
+                throw new MojoExecutionException("Failed reading metadata filter file " + filterArtifact.getFile(), e);
+            }
+            logger.debug("Metadata filter {} covering group '{}' has {} bytes", filterArtifact, filter.getGroupId(),
+                    filter.getSize());
+            result.add(filter);
+        }
+        return result;
+    }
+
+    /**
+     * Resolves artifact given in <code>groupId:artifactId:version</code> format
+     */
+    private Artifact resolveCoordinates(String coordinates, String type, String classifier,
+                                        RepositoryRouter repositoryRouter, MetadataArtifactResolver artifactResolver)
+            throws MojoExecutionException {
+        String[] parts = coordinates.trim().split(":");
+        if (parts.length != 3) {
+            throw new MojoExecutionException("Invalid " + classifier + " artifact coordinates " + coordinates +
+                    ". Use groupId:artifactId:version");
+        }
+        Artifact artifact = artifactFactory.createArtifactWithClassifier(parts[0], parts[1], parts[2], type,
+                classifier);
+        try {
+            artifactResolver.resolve(artifact, repositoryRouter.route(artifact.getGroupId()));
+        } catch (ArtifactResolutionException | ArtifactNotFoundException e) {
+            throw new MojoExecutionException("Failed resolving " + classifier + " artifact " + artifact, e);
+        }
+        return artifact;
+    }
+
+    /**
+     * Displays execution summary and writes JSON report if enabled
+     */
+    protected void reportStatistics(ExecutionStatistics statistics) {
+        reportStatistics(statistics, project.getBuild().getDirectory());
+    }
+
+    /**
+     * Displays execution summary and writes JSON report to the given build directory if enabled
+     */
+    protected void reportStatistics(ExecutionStatistics statistics, String buildDirectory) {
+        statistics.logSummary(logger);
+        if (writeReport) {
+            File reportFile = new File(buildDirectory, "dependency-metadata" + File.separator +
+                    statistics.getGoal() + "-report.json");
+            try {
+                statistics.writeReport(reportFile);
+            } catch (IOException e) {
+                logger.warn("Failed writing execution report {}: {}", reportFile, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Creates bounded worker pool for the given amount of tasks
+     *
+     * @param tasks number of tasks to be submitted
+     * @return executor service with at most {@link #threads} daemon workers
+     */
+    protected ExecutorService createExecutor(int tasks) {
+        int poolSize = Math.max(1, Math.min(threads, tasks));
+        return Executors.newFixedThreadPool(poolSize,
+                new DaemonThreadFactory("dependency-metadata-" + project.getArtifactId() + "-"));
+    }
 }
@@ -0,0 +1,263 @@
+package com.unibet.maven;
+
+/*
+ * Copyright 2014 North Development AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>Looks up metadata of dependencies concurrently on the given executor and collects findings in dependency
+ * order.</p>
+ */
+public class ConcurrentMetadataResolver {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConcurrentMetadataResolver.class);
+    private static final long TIMEOUT_CHECK_INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final ExecutorService executor;
+    private final boolean failFast;
+    private final long timeBudget;
+    private final long lookupTimeout;
+    private final boolean cancelTimedOut;
+    private final List<Artifact> timedOut = new ArrayList<>();
+
+    /**
+     * Metadata lookup of a single dependency
+     */
+    public interface Lookup {
+        /**
+         * @return finding or null if dependency has no metadata of supported format
+         */
+        MetadataFinding lookup(Artifact dependency) throws MojoExecutionException;
+    }
+
+    /**
+     * @param executor executor running the lookups, shut down once resolution is finished
+     * @param failFast if true outstanding lookups are cancelled as soon as failing metadata is found
+     */
+    public ConcurrentMetadataResolver(ExecutorService executor, boolean failFast) {
+        this(executor, failFast, 0, 0, TimeUnit.MILLISECONDS, true);
+    }
+
+    /**
+     * @param executor       executor running the lookups, shut down once resolution is finished
+     * @param failFast       if true outstanding lookups are cancelled as soon as failing metadata is found
+     * @param timeBudget     total time given to all lookups, zero for no limit
+     * @param lookupTimeout  time given to a single running lookup, zero for no limit
+     * @param unit           unit of the time budget and lookup timeout
+     * @param cancelTimedOut if false lookups running out of time are left running in background, e.g. to refresh
+     *                       the local repository for the next build
+     */
+    public ConcurrentMetadataResolver(ExecutorService executor, boolean failFast, long timeBudget,
+                                      long lookupTimeout, TimeUnit unit, boolean cancelTimedOut) {
+        this.executor = executor;
+        this.failFast = failFast;
+        this.timeBudget = unit.toNanos(timeBudget);
+        this.lookupTimeout = unit.toNanos(lookupTimeout);
+        this.cancelTimedOut = cancelTimedOut;
+    }
+
+    /**
+     * Resolves metadata of the given dependencies concurrently. Dependencies whose lookup ran out of time are
+     * available from {@link #getTimedOut()} afterwards.
+     *
+     * @param dependencies dependencies to resolve metadata for
+     * @param lookup       lookup of a single dependency
+     * @return findings ordered the same way as the dependencies, led by the failing finding if outstanding lookups
+     * were cancelled by fail fast
+     */
+    public List<MetadataFinding> resolve(List<Artifact> dependencies, Lookup lookup) throws MojoExecutionException {
+        return resolve(dependencies, lookup, null);
+    }
+
+    /**
+     * Resolves metadata of the given dependencies concurrently. Dependencies whose lookup ran out of time are looked
+     * up again by the fallback lookup in the calling thread and are available from {@link #getTimedOut()}
+     * afterwards.
+     *
+     * @param dependencies dependencies to resolve metadata for
+     * @param lookup       lookup of a single dependency
+     * @param fallback     lookup of a single dependency whose lookup ran out of time, e.g. in the local repository
+     *                     only, null to leave such dependencies out of the findings
+     * @return findings ordered the same way as the dependencies, led by the failing finding if outstanding lookups
+     * were cancelled by fail fast
+     */
+    public List<MetadataFinding> resolve(List<Artifact> dependencies, final Lookup lookup, Lookup fallback)
+            throws MojoExecutionException {
+        CompletionService<MetadataFinding> completionService = new ExecutorCompletionService<>(executor);
+        List<Future<MetadataFinding>> futures = new ArrayList<>(dependencies.size());
+        final AtomicLongArray startTimes = new AtomicLongArray(dependencies.size());
+        boolean[] timedOutFlags = new boolean[dependencies.size()];
+        long deadline = System.nanoTime() + timeBudget;
+        boolean abandoned = false;
+        int failedTask = -1;
+        try {
+            for (int i = 0; i < dependencies.size(); i++) {
+                final int task = i;
+                final Artifact dependencyArtifact = dependencies.get(i);
+                futures.add(completionService.submit(new Callable<MetadataFinding>() {
+                    @Override
+                    public MetadataFinding call() throws Exception {
+                        startTimes.set(task, System.nanoTime());
+                        return lookup.lookup(dependencyArtifact);
+                    }
+                }));
+            }
+
+            Map<Future<MetadataFinding>, Integer> indexes = new HashMap<>();
+            for (int i = 0; i < futures.size(); i++) {
+                indexes.put(futures.get(i), i);
+            }
+            boolean timed = timeBudget > 0 || lookupTimeout > 0;
+            long nextCheck = System.nanoTime();
+            int pending = futures.size();
+            while (pending > 0) {
+                long now = System.nanoTime();
+                if (timed && now - nextCheck >= 0) {
+                    // Running out of time is checked periodically rather than on every completion
+                    long wait = timeBudget > 0 ? Math.min(deadline - now, TIMEOUT_CHECK_INTERVAL) :
+                            TIMEOUT_CHECK_INTERVAL;
+                    for (int i = 0; i < futures.size(); i++) {
+                        Future<MetadataFinding> future = futures.get(i);
+                        if (timedOutFlags[i] || future.isDone()) {
+                            continue;
+                        }
+                        long startTime = startTimes.get(i);
+                        if (timeBudget > 0 && deadline - now <= 0 ||
+                                lookupTimeout > 0 && startTime != 0 && now - startTime >= lookupTimeout) {
+                            timedOutFlags[i] = true;
+                            pending--;
+                            if (cancelTimedOut) {
+                                future.cancel(true);
+                            } else {
+                                abandoned = true;
+                            }
+                        } else if (lookupTimeout > 0 && startTime != 0) {
+                            wait = Math.min(wait, startTime + lookupTimeout - now);
+                        }
+                    }
+                    nextCheck = now + Math.max(0, wait);
+                    if (pending == 0) {
+                        break;
+                    }
+                }
+
+                Future<MetadataFinding> completed = timed ?
+                        completionService.poll(Math.max(0, nextCheck - now), TimeUnit.NANOSECONDS) :
+                        completionService.take();
+                if (completed == null || completed.isCancelled() || timedOutFlags[indexes.get(completed)]) {
+                    continue;
+                }
+                pending--;
+                MetadataFinding finding = getFinding(completed);
+                if (failFast && finding != null && finding.isFailure()) {
+                    LOGGER.debug("Failing metadata found in {}. Cancelling outstanding lookups", finding.getSource());
+                    failedTask = indexes.get(completed);
+                    for (Future<MetadataFinding> future : futures) {
+                        future.cancel(true);
+                    }
+                    abandoned = false;
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while resolving metadata artifacts", e);
+        } finally {
+            if (abandoned) {
+                executor.shutdown();
+            } else {
+                executor.shutdownNow();
+            }
+        }
+
+        List<MetadataFinding> findings = new ArrayList<>();
+        if (failedTask >= 0) {
+            // Failing finding goes first, followed by findings of lookups completed before cancellation
+            findings.add(getFinding(futures.get(failedTask)));
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            Future<MetadataFinding> future = futures.get(i);
+            MetadataFinding finding = null;
+            if (i == failedTask) {
+                continue;
+            } else if (timedOutFlags[i]) {
+                timedOut.add(dependencies.get(i));
+                if (fallback != null && failedTask < 0) {
+                    finding = fallback.lookup(dependencies.get(i));
+                }
+            } else if (future.isDone() && !future.isCancelled()) {
+                // Failures of lookups outstanding at cancellation must not replace the failing finding
+                finding = failedTask < 0 ? getFinding(future) : getCompletedFinding(future);
+            }
+            if (finding != null) {
+                findings.add(finding);
+            }
+        }
+        return findings;
+    }
+
+    /**
+     * @return dependencies whose lookup ran out of time budget or exceeded lookup timeout
+     */
+    public List<Artifact> getTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * @return finding of the completed lookup or null if the lookup failed
+     */
+    private static MetadataFinding getCompletedFinding(Future<MetadataFinding> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            LOGGER.debug("Ignoring lookup failed after failing metadata was found: {}", e.getCause().toString());
+            return null;
+        }
+    }
+
+    private MetadataFinding getFinding(Future<MetadataFinding> future) throws MojoExecutionException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while resolving metadata artifacts", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof MojoExecutionException) {
+                throw (MojoExecutionException) e.getCause();
+            }
+            throw new MojoExecutionException("Failed resolving metadata artifact", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.unibet.maven;
+
+/*
+ * Copyright 2014 North Development AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.repository.Authentication;
+import org.apache.maven.artifact.repository.metadata.Metadata;
+import org.apache.maven.artifact.repository.metadata.io.xpp3.MetadataXpp3Reader;
+import org.apache.maven.repository.Proxy;
+import org.codehaus.plexus.util.Base64;
+import org.codehaus.plexus.util.ReaderFactory;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * <p>Fetches available versions of an artifact from <code>maven-metadata.xml</code> files of remote repositories
+ * using conditional requests. Fetched files are cached with their <code>ETag</code> and <code>Last-Modified</code>
+ * validators, so unchanged metadata is revalidated without being downloaded again and without touching the update
+ * policy of the repositories used by the rest of the build.</p>
+ * <p>Credentials and proxy configured for a repository in the settings are applied to its requests. Credentials of
+ * a proxy are sent to HTTP proxies of plain HTTP repositories only.</p>
+ */
+public class ConditionalVersionFetcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConditionalVersionFetcher.class);
+    private static final String ETAG = "etag";
+    private static final String LAST_MODIFIED = "lastModified";
+
+    private final File cacheDirectory;
+    private final int timeout;
+
+    /**
+     * @param cacheDirectory directory fetched metadata files and their validators are cached in
+     * @param timeout        connect and read timeout in milliseconds
+     */
+    public ConditionalVersionFetcher(File cacheDirectory, int timeout) {
+        this.cacheDirectory = cacheDirectory;
+        this.timeout = timeout;
+    }
+
+    /**
+     * @return union of versions available in the given repositories or null if any of them is not accessible over
+     * plain HTTP, e.g. a file repository
+     * @throws IOException if metadata of any repository can not be fetched, e.g. authentication is rejected
+     */
+    public Set<String> fetchVersions(String groupId, String artifactId, List<ArtifactRepository> repositories)
+            throws IOException {
+        for (ArtifactRepository repository : repositories) {
+            String url = repository.getUrl();
+            if (url == null || !url.startsWith("http://") && !url.startsWith("https://")) {
+                return null;
+            }
+        }
+        Set<String> versions = new LinkedHashSet<>();
+        for (ArtifactRepository repository : repositories) {
+            versions.addAll(fetchVersions(groupId, artifactId, repository));
+        }
+        return versions;
+    }
+
+    private List<String> fetchVersions(String groupId, String artifactId, ArtifactRepository repository)
+            throws IOException {
+        String path = groupId.replace('.', '/') + "/" + artifactId + "/maven-metadata.xml";
+        String baseUrl = repository.getUrl().endsWith("/") ? repository.getUrl() : repository.getUrl() + "/";
+        URL url = new URL(baseUrl + path);
+        File directory = new File(cacheDirectory, groupId.replace('.', File.separatorChar) + File.separator +
+                artifactId);
+        File cachedFile = new File(directory, "maven-metadata-" + repository.getId() + ".xml");
+        File validatorsFile = new File(directory, "maven-metadata-" + repository.getId() + ".properties");
+
+        Properties validators = new Properties();
+        if (cachedFile.isFile() && validatorsFile.isFile()) {
+            try (InputStream in = new FileInputStream(validatorsFile)) {
+                validators.load(in);
+            }
+        }
+
+        HttpURLConnection connection = openConnection(url, repository);
+        try {
+            connection.setConnectTimeout(timeout);
+            connection.setReadTimeout(timeout);
+            connection.setUseCaches(false);
+            if (validators.getProperty(ETAG) != null) {
+                connection.setRequestProperty("If-None-Match", validators.getProperty(ETAG));
+            }
+            if (validators.getProperty(LAST_MODIFIED) != null) {
+                connection.setRequestProperty("If-Modified-Since", validators.getProperty(LAST_MODIFIED));
+            }
+
+            int status = connection.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                LOGGER.debug("Metadata {} not modified", url);
+                return readVersions(cachedFile);
+            } else if (status == HttpURLConnection.HTTP_NOT_FOUND) {
+                LOGGER.debug("Metadata {} not found", url);
+                return Collections.emptyList();
+            } else if (status != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Fetching " + url + " failed with " + status + " " +
+                        connection.getResponseMessage());
+            }
+
+            directory.mkdirs();
+            File downloadedFile = new File(directory, cachedFile.getName() + ".part");
+            try (InputStream in = connection.getInputStream()) {
+                Files.copy(in, downloadedFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            List<String> versions = readVersions(downloadedFile);
+            Files.move(downloadedFile.toPath(), cachedFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+            Properties fetchedValidators = new Properties();
+            if (connection.getHeaderField("ETag") != null) {
+                fetchedValidators.setProperty(ETAG, connection.getHeaderField("ETag"));
+            }
+            if (connection.getHeaderField("Last-Modified") != null) {
+                fetchedValidators.setProperty(LAST_MODIFIED, connection.getHeaderField("Last-Modified"));
+            }
+            try (OutputStream out = new FileOutputStream(validatorsFile)) {
+                fetchedValidators.store(out, url.toString());
+            }
+            LOGGER.debug("Metadata {} fetched", url);
+            return versions;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Opens connection through the proxy of the repository, unless the host is excluded from proxying, and with
+     * basic authentication with the credentials of the repository and of the proxy
+     */
+    private static HttpURLConnection openConnection(URL url, ArtifactRepository repository) throws IOException {
+        HttpURLConnection connection;
+        Proxy proxy = repository.getProxy();
+        if (proxy != null && proxy.getHost() != null && !isNonProxyHost(url.getHost(), proxy.getNonProxyHosts())) {
+            boolean socks = proxy.getProtocol() != null &&
+                    proxy.getProtocol().toLowerCase(Locale.ENGLISH).startsWith("socks");
+            connection = (HttpURLConnection) url.openConnection(new java.net.Proxy(socks ?
+                    java.net.Proxy.Type.SOCKS : java.net.Proxy.Type.HTTP,
+                    new InetSocketAddress(proxy.getHost(), proxy.getPort())));
+            if (proxy.getUserName() != null) {
+                connection.setRequestProperty("Proxy-Authorization",
+                        basicAuthorization(proxy.getUserName(), proxy.getPassword()));
+            }
+        } else {
+            connection = (HttpURLConnection) url.openConnection();
+        }
+        Authentication authentication = repository.getAuthentication();
+        if (authentication != null && authentication.getUsername() != null) {
+            connection.setRequestProperty("Authorization",
+                    basicAuthorization(authentication.getUsername(), authentication.getPassword()));
+        }
+        return connection;
+    }
+
+    /**
+     * @param nonProxyHosts <code>|</code> or <code>,</code> separated host patterns with <code>*</code> wildcards
+     */
+    private static boolean isNonProxyHost(String host, String nonProxyHosts) {
+        if (nonProxyHosts == null) {
+            return false;
+        }
+        for (String nonProxyHost : nonProxyHosts.split("[|,]")) {
+            String pattern = nonProxyHost.trim();
+            if (!pattern.isEmpty() && Pattern.compile(Pattern.quote(pattern).replace("*", "\\E.*\\Q"),
+                    Pattern.CASE_INSENSITIVE).matcher(host).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String basicAuthorization(String username, String password) {
+        String credentials = username + ":" + (password != null ? password : "");
+        return "Basic " + new String(Base64.encodeBase64(credentials.getBytes(StandardCharsets.UTF_8)),
+                StandardCharsets.US_ASCII);
+    }
+
+    private static List<String> readVersions(File file) throws IOException {
+        Metadata metadata;
+        try (Reader in = ReaderFactory.newXmlReader(file)) {
+            metadata = new MetadataXpp3Reader().read(in, false);
+        } catch (XmlPullParserException e) {
+            throw new IOException("Failed parsing repository metadata " + file, e);
+        }
+        if (metadata.getVersioning() == null) {
+            return Collections.emptyList();
+        }
+        @SuppressWarnings("unchecked")
+        List<String> versions = metadata.getVersioning().getVersions();
+        return versions;
+    }
+}
@@ -0,0 +1,141 @@
+package com.unibet.maven;
+
+/*
+ * Copyright 2014 North Development AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * <p>Include and exclude filter of dependencies by <code>groupId[:artifactId[:scope]]</code> patterns. Each pattern
+ * segment may contain <code>*</code> wildcards, omitted segments match anything.</p>
+ * <p>Patterns are compiled once: segments without wildcards are compared for equality, segments with a single
+ * trailing wildcard by prefix and only remaining segments fall back to regular expressions.</p>
+ */
+public class DependencyFilter implements ArtifactFilter {
+    private final List<CoordinatesMatcher> includes;
+    private final List<CoordinatesMatcher> excludes;
+
+    /**
+     * @param includes patterns of dependencies to be included, all dependencies are included if empty
+     * @param excludes patterns of dependencies to be excluded
+     */
+    public DependencyFilter(List<String> includes, List<String> excludes) {
+        this.includes = compile(includes);
+        this.excludes = compile(excludes);
+    }
+
+    @Override
+    public boolean include(Artifact artifact) {
+        return (includes.isEmpty() || matchesAny(includes, artifact)) && !matchesAny(excludes, artifact);
+    }
+
+    private static boolean matchesAny(List<CoordinatesMatcher> matchers, Artifact artifact) {
+        for (CoordinatesMatcher matcher : matchers) {
+            if (matcher.matches(artifact)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<CoordinatesMatcher> compile(List<String> patterns) {
+        if (patterns == null || patterns.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<CoordinatesMatcher> matchers = new ArrayList<>(patterns.size());
+        for (String pattern : patterns) {
+            if (pattern != null && !pattern.trim().isEmpty()) {
+                matchers.add(new CoordinatesMatcher(pattern.trim()));
+            }
+        }
+        return matchers;
+    }
+
+    private static class CoordinatesMatcher {
+        private final SegmentMatcher groupId;
+        private final SegmentMatcher artifactId;
+        private final SegmentMatcher scope;
+
+        CoordinatesMatcher(String pattern) {
+            String[] segments = pattern.split(":", -1);
+            if (segments.length > 3) {
+                throw new IllegalArgumentException("Invalid dependency pattern " + pattern +
+                        ". Use groupId[:artifactId[:scope]]");
+            }
+            groupId = SegmentMatcher.compile(segments[0]);
+            artifactId = SegmentMatcher.compile(segments.length > 1 ? segments[1] : "*");
+            scope = SegmentMatcher.compile(segments.length > 2 ? segments[2] : "*");
+        }
+
+        boolean matches(Artifact artifact) {
+            return groupId.matches(artifact.getGroupId()) && artifactId.matches(artifact.getArtifactId()) &&
+                    scope.matches(artifact.getScope());
+        }
+    }
+
+    private static class SegmentMatcher {
+        private static final SegmentMatcher ANY = new SegmentMatcher(null, null, null);
+
+        private final String exact;
+        private final String prefix;
+        private final Pattern pattern;
+
+        private SegmentMatcher(String exact, String prefix, Pattern pattern) {
+            this.exact = exact;
+            this.prefix = prefix;
+            this.pattern = pattern;
+        }
+
+        static SegmentMatcher compile(String segment) {
+            int wildcard = segment.indexOf('*');
+            if (segment.isEmpty() || segment.equals("*")) {
+                return ANY;
+            } else if (wildcard < 0) {
+                return new SegmentMatcher(segment, null, null);
+            } else if (wildcard == segment.length() - 1) {
+                return new SegmentMatcher(null, segment.substring(0, wildcard), null);
+            }
+            StringBuilder regex = new StringBuilder();
+            String[] parts = segment.split("\\*", -1);
+            for (int i = 0; i < parts.length; i++) {
+                if (i > 0) {
+                    regex.append(".*");
+                }
+                if (!parts[i].isEmpty()) {
+                    regex.append(Pattern.quote(parts[i]));
+                }
+            }
+            return new SegmentMatcher(null, null, Pattern.compile(regex.toString()));
+        }
+
+        boolean matches(String value) {
+            if (exact != null) {
+                return exact.equals(value);
+            } else if (prefix != null) {
+                return value != null && value.startsWith(prefix);
+            } else if (pattern != null) {
+                return value != null && pattern.matcher(value).matches();
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.unibet.maven;
+
+/*
+ * Copyright 2014 North Development AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * <p>Builds compact membership filter of all artifact versions having metadata found in a repository directory for
+ * the given group id. Unlike the index goal only existence of metadata is recorded, so the filter stays small even
+ * for huge repositories. The filter artifact is attached to the project and referenced by the verify goal to avoid
+ * remote lookups of metadata artifacts that definitely do not exist.</p>
+ */
+@Mojo(name = "filter", defaultPhase = LifecyclePhase.GENERATE_RESOURCES, threadSafe = true)
+public class DependencyMetadataFilterMojo extends DependencyMetadataIndexMojo {
+
+    /**
+     * Probability of a dependency without metadata being looked up remotely anyway
+     */
+    @Parameter(property = "dependency.metadata.falsePositiveRate", defaultValue = "0.01")
+    private double falsePositiveRate;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        Set<String> keys = scanMetadataArtifacts().keySet();
+        MetadataBloomFilter filter;
+        try {
+            filter = MetadataBloomFilter.create(getIndexGroupId(), keys.size(), falsePositiveRate);
+        } catch (IllegalArgumentException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+        for (String key : keys) {
+            filter.add(key);
+        }
+
+        File filterFile = getAttachedFile(METADATA_FILTER_CLASSIFIER, METADATA_FILTER_TYPE);
+        try {
+            filter.writeTo(filterFile);
+        } catch (IOException e) {
+            throw new MojoFailureException("Failed creating metadata filter artifact file " + filterFile, e);
+        }
+        attach(filterFile, METADATA_FILTER_CLASSIFIER, METADATA_FILTER_TYPE);
+        logger.info("Metadata filter artifact of {} entries, {} bytes and {} hash functions generated: {}",
+                keys.size(), filter.getSize(), filter.getHashCount(), filterFile);
+    }
+}
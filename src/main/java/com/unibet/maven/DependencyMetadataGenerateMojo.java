@@ -17,23 +17,38 @@ package com.unibet.maven;
  */
 
 import com.unibet.maven.domain.Metadata;
+import com.unibet.maven.report.ExecutionStatistics;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.metadata.ArtifactMetadataRetrievalException;
 import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.repository.ArtifactRepositoryFactory;
+import org.apache.maven.artifact.repository.ArtifactRepositoryPolicy;
 import org.apache.maven.artifact.resolver.ArtifactNotFoundException;
 import org.apache.maven.artifact.resolver.ArtifactResolutionException;
 import org.apache.maven.artifact.versioning.ArtifactVersion;
+import org.apache.maven.artifact.versioning.DefaultArtifactVersion;
+import org.apache.maven.artifact.versioning.InvalidVersionSpecificationException;
 import org.apache.maven.artifact.versioning.OverConstrainedVersionException;
+import org.apache.maven.artifact.versioning.VersionRange;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
+import org.codehaus.jackson.map.ObjectWriter;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.apache.maven.artifact.repository.ArtifactRepositoryPolicy.UPDATE_POLICY_ALWAYS;
 
@@ -44,7 +59,6 @@ import static org.apache.maven.artifact.repository.ArtifactRepositoryPolicy.UPDA
  */
 @Mojo(name = "generate", defaultPhase = LifecyclePhase.GENERATE_RESOURCES, threadSafe = false)
 public class DependencyMetadataGenerateMojo extends AbstractDependencyMetadataMojo {
-
     /**
      * Message to be displayed during maven execution
      */
@@ -64,9 +78,54 @@ public class DependencyMetadataGenerateMojo extends AbstractDependencyMetadataMo
     @Parameter(property = "dependency.metadata.applyOnPreviousVersions", defaultValue = "false")
     private boolean applyOnPreviousVersions;
 
+    /**
+     * Version range, e.g. <code>[,2.3.0)</code>, metadata applies to. If defined single version range rules metadata
+     * artifact is generated for the project instead of metadata artifacts per version. Rules are published with
+     * <code>rules-SNAPSHOT</code> version under the project artifact id suffixed with <code>-metadata-rules</code>
+     * to the snapshot repository, every deployment replaces previously deployed rules.
+     */
+    @Parameter(property = "dependency.metadata.versionRange")
+    private String versionRange;
+
+    /**
+     * If true only the summary of already covered versions and versions to be generated is displayed.
+     */
+    @Parameter(property = "dependency.metadata.dryRun", defaultValue = "false")
+    private boolean dryRun;
+
+    /**
+     * If true available versions are revalidated with conditional requests of <code>maven-metadata.xml</code>
+     * files, downloading them only when changed. Repositories not accessible over plain HTTP are looked up through
+     * the artifact metadata source instead.
+     */
+    @Parameter(property = "dependency.metadata.conditionalRequests", defaultValue = "true")
+    private boolean conditionalRequests;
+
+    /**
+     * Connect and read timeout in seconds of conditional requests of <code>maven-metadata.xml</code> files
+     */
+    @Parameter(property = "dependency.metadata.versionsFetchTimeoutSeconds", defaultValue = "30")
+    private int versionsFetchTimeoutSeconds;
+
+    @Component
+    private ArtifactRepositoryFactory repositoryFactory;
+
+    private final ExecutionStatistics statistics = new ExecutionStatistics("generate");
+
+    private RepositoryRouter repositoryRouter;
+
+    private MetadataArtifactResolver artifactResolver;
+
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
         Artifact artifact = project.getArtifact();
+        artifactResolver = createArtifactResolver();
+        repositoryRouter = new RepositoryRouter(repositoryRoutes, remoteRepositories);
+        if (versionRange != null && !versionRange.trim().isEmpty()) {
+            generateRulesArtifact(artifact);
+            return;
+        }
+
         List<ArtifactVersion> versions = new ArrayList<>(1);
         try {
             versions.add(artifact.getSelectedVersion());
@@ -75,57 +134,208 @@ public class DependencyMetadataGenerateMojo extends AbstractDependencyMetadataMo
         }
 
         if (applyOnPreviousVersions) {
-            // Enable both releases and snapshot repositories and always update the metadata
-            for (ArtifactRepository repository : remoteRepositories) {
-                repository.getReleases().setUpdatePolicy(UPDATE_POLICY_ALWAYS);
-                repository.getReleases().setEnabled(true);
-                repository.getSnapshots().setUpdatePolicy(UPDATE_POLICY_ALWAYS);
-                repository.getSnapshots().setEnabled(true);
-            }
+            // Private repository views, so resolution of the rest of the build keeps its update policies
+            repositoryRouter = new RepositoryRouter(repositoryRoutes, createScopedRepositories());
             versions.addAll(getLowerVersions(artifact));
         }
 
-        for (ArtifactVersion version : versions) {
-            Artifact metadataArtifact = artifactFactory.createArtifactWithClassifier(artifact.getGroupId(),
-                    artifact.getArtifactId(), version.toString(), METADATA_ARTIFACT_TYPE,
-                    METADATA_ARTIFACT_CLASSIFIER);
-            try {
-                logger.debug("Resolving metadata artifact {} in {} and {}", metadataArtifact, remoteRepositories,
-                        logger);
-                resolver.resolve(metadataArtifact, remoteRepositories, localRepository);
-                logger.info("Metadata artifact {} already exists. Skipping...", metadataArtifact);
-            } catch (ArtifactResolutionException e) {
-                throw new MojoExecutionException("Failed resolving metadata artifact " + metadataArtifact, e);
-            } catch (ArtifactNotFoundException e) {
-                logger.debug("Metadata artifact {} not found", metadataArtifact);
-
-                String filename = project.getArtifactId() + "-" + version.toString() +
-                        "-" + METADATA_ARTIFACT_CLASSIFIER + "." + METADATA_ARTIFACT_TYPE;
-                File artifactFile = new File(project.getBuild().getDirectory() + File.separator + filename);
-
-                Metadata metadata = new Metadata();
-                metadata.formatVersion = this.formatVersion;
-                metadata.message = this.message;
-                metadata.fail = this.fail;
-
-                new File(project.getBuild().getDirectory()).mkdirs();
+        Metadata metadata = new Metadata();
+        metadata.formatVersion = this.formatVersion;
+        metadata.message = this.message;
+        metadata.fail = this.fail;
+
+        File targetDirectory = new File(project.getBuild().getDirectory());
+        if (!dryRun) {
+            targetDirectory.mkdirs();
+        }
+
+        List<Artifact> generatedArtifacts = generateMetadataArtifacts(artifact, versions, metadata, targetDirectory);
+
+        List<String> coveredVersions = new ArrayList<>();
+        List<String> generatedVersions = new ArrayList<>();
+        for (int i = 0; i < versions.size(); i++) {
+            Artifact metadataArtifact = generatedArtifacts.get(i);
+            if (metadataArtifact == null) {
+                coveredVersions.add(versions.get(i).toString());
+            } else {
+                generatedVersions.add(versions.get(i).toString());
+                if (!dryRun) {
+                    project.addAttachedArtifact(metadataArtifact);
+                }
+            }
+        }
+
+        if (dryRun) {
+            logger.info("Versions already covered by metadata: {}", coveredVersions);
+            logger.info("Versions metadata would be generated for: {}", generatedVersions);
+        } else {
+            logger.info("Metadata artifacts generated for {} versions, {} versions already covered",
+                    generatedVersions.size(), coveredVersions.size());
+        }
+        reportStatistics(statistics);
+    }
+
+    /**
+     * Generates version range rules metadata artifact which replaces previously deployed rules
+     */
+    private void generateRulesArtifact(Artifact artifact) throws MojoFailureException {
+        try {
+            VersionRange.createFromVersionSpec(versionRange);
+        } catch (InvalidVersionSpecificationException e) {
+            throw new MojoFailureException("Invalid version range " + versionRange, e);
+        }
+
+        Metadata metadata = new Metadata();
+        metadata.formatVersion = this.formatVersion;
+        metadata.message = this.message;
+        metadata.fail = this.fail;
+        metadata.versionRange = versionRange.trim();
+
+        Artifact rulesArtifact = artifactFactory.createArtifactWithClassifier(artifact.getGroupId(),
+                getRulesArtifactId(artifact.getArtifactId()), METADATA_RULES_VERSION, METADATA_ARTIFACT_TYPE,
+                METADATA_ARTIFACT_CLASSIFIER);
+        String filename = getRulesArtifactId(project.getArtifactId()) + "-" + METADATA_RULES_VERSION +
+                "-" + METADATA_ARTIFACT_CLASSIFIER + "." + METADATA_ARTIFACT_TYPE;
+        File artifactFile = new File(project.getBuild().getDirectory() + File.separator + filename);
+        if (dryRun) {
+            logger.info("Version range rules metadata artifact would be generated for {}", metadata.versionRange);
+            return;
+        }
+
+        new File(project.getBuild().getDirectory()).mkdirs();
+        try {
+            OBJECT_MAPPER.writeValue(artifactFile, metadata);
+        } catch (IOException ioe) {
+            throw new MojoFailureException("Failed creating metadata artifact file " + artifactFile, ioe);
+        }
+        project.addAttachedArtifact(rulesArtifact);
+        logger.info("Version range rules metadata artifact generated for {}: {}", metadata.versionRange,
+                artifactFile);
+    }
+
+    /**
+     * Checks metadata artifact existence and writes metadata artifact files for the given versions concurrently.
+     *
+     * @return metadata artifacts in versions order, null for versions which already have metadata
+     */
+    private List<Artifact> generateMetadataArtifacts(final Artifact artifact, List<ArtifactVersion> versions,
+                                                     Metadata metadata, final File targetDirectory)
+            throws MojoExecutionException, MojoFailureException {
+        final ObjectWriter writer = OBJECT_MAPPER.writerWithType(Metadata.class);
+        final byte[] content;
+        try {
+            content = writer.writeValueAsBytes(metadata);
+        } catch (IOException e) {
+            throw new MojoFailureException("Failed serializing metadata", e);
+        }
+
+        ExecutorService executor = createExecutor(versions.size());
+        List<Future<Artifact>> futures = new ArrayList<>(versions.size());
+        try {
+            for (final ArtifactVersion version : versions) {
+                futures.add(executor.submit(new Callable<Artifact>() {
+                    @Override
+                    public Artifact call() throws Exception {
+                        return generateMetadataArtifact(artifact, version, content, targetDirectory);
+                    }
+                }));
+            }
+
+            List<Artifact> metadataArtifacts = new ArrayList<>(versions.size());
+            for (Future<Artifact> future : futures) {
                 try {
-                    OBJECT_MAPPER.writeValue(artifactFile, metadata);
-                } catch (IOException ioe) {
-                    throw new MojoFailureException("Failed creating metadata artifact file " + artifactFile, ioe);
+                    metadataArtifacts.add(future.get());
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof MojoExecutionException) {
+                        throw (MojoExecutionException) e.getCause();
+                    } else if (e.getCause() instanceof MojoFailureException) {
+                        throw (MojoFailureException) e.getCause();
+                    }
+                    throw new MojoExecutionException("Failed generating metadata artifact", e.getCause());
                 }
-                project.addAttachedArtifact(metadataArtifact);
-                logger.info("Metadata artifact generated: {}", artifactFile);
             }
+            return metadataArtifacts;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while generating metadata artifacts", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return generated metadata artifact or null if it already exists
+     */
+    private Artifact generateMetadataArtifact(Artifact artifact, ArtifactVersion version, byte[] content,
+                                              File targetDirectory)
+            throws MojoExecutionException, MojoFailureException {
+        Artifact metadataArtifact = artifactFactory.createArtifactWithClassifier(artifact.getGroupId(),
+                artifact.getArtifactId(), version.toString(), METADATA_ARTIFACT_TYPE,
+                METADATA_ARTIFACT_CLASSIFIER);
+        List<ArtifactRepository> repositories = repositoryRouter.route(artifact.getGroupId());
+        String repositoryKey = ExecutionStatistics.repositoryKey(repositories);
+        long start = System.nanoTime();
+        try {
+            logger.debug("Resolving metadata artifact {} in {}", metadataArtifact, repositories);
+            artifactResolver.resolve(metadataArtifact, repositories);
+            logger.info("Metadata artifact {} already exists. Skipping...", metadataArtifact);
+            statistics.recordHit(repositoryKey, metadataArtifact.getFile().length());
+            return null;
+        } catch (ArtifactResolutionException e) {
+            statistics.recordError(repositoryKey);
+            throw new MojoExecutionException("Failed resolving metadata artifact " + metadataArtifact, e);
+        } catch (ArtifactNotFoundException e) {
+            logger.debug("Metadata artifact {} not found", metadataArtifact);
+            statistics.recordMiss(repositoryKey);
+        } finally {
+            statistics.recordTiming(metadataArtifact.getId(), ExecutionStatistics.RESOLVE, System.nanoTime() - start);
         }
+
+        if (dryRun) {
+            return metadataArtifact;
+        }
+
+        String filename = project.getArtifactId() + "-" + version.toString() +
+                "-" + METADATA_ARTIFACT_CLASSIFIER + "." + METADATA_ARTIFACT_TYPE;
+        File artifactFile = new File(targetDirectory, filename);
+        start = System.nanoTime();
+        try {
+            Files.write(artifactFile.toPath(), content);
+        } catch (IOException ioe) {
+            throw new MojoFailureException("Failed creating metadata artifact file " + artifactFile, ioe);
+        } finally {
+            statistics.recordTiming(metadataArtifact.getId(), ExecutionStatistics.WRITE, System.nanoTime() - start);
+        }
+        logger.info("Metadata artifact generated: {}", artifactFile);
+        return metadataArtifact;
+    }
+
+    /**
+     * Creates copies of remote repositories with both releases and snapshots enabled and always updated.
+     * Credentials and mirrors are matched by repository id the same way as for the original repositories.
+     */
+    private List<ArtifactRepository> createScopedRepositories() {
+        List<ArtifactRepository> scopedRepositories = new ArrayList<>(remoteRepositories.size());
+        for (ArtifactRepository repository : remoteRepositories) {
+            ArtifactRepositoryPolicy snapshots = new ArtifactRepositoryPolicy(true, UPDATE_POLICY_ALWAYS,
+                    repository.getSnapshots().getChecksumPolicy());
+            ArtifactRepositoryPolicy releases = new ArtifactRepositoryPolicy(true, UPDATE_POLICY_ALWAYS,
+                    repository.getReleases().getChecksumPolicy());
+            scopedRepositories.add(repositoryFactory.createArtifactRepository(repository.getId(),
+                    repository.getUrl(), repository.getLayout(), snapshots, releases));
+        }
+        return scopedRepositories;
     }
 
     @SuppressWarnings("unchecked")
     private List<ArtifactVersion> getLowerVersions(Artifact artifact) throws MojoExecutionException {
+        List<ArtifactRepository> repositories = repositoryRouter.route(artifact.getGroupId());
         List<ArtifactVersion> lowerVersions;
         try {
-            List<ArtifactVersion> versions = artifactMetadataSource.retrieveAvailableVersions(artifact,
-                    localRepository, remoteRepositories);
+            List<ArtifactVersion> versions = conditionalRequests ? fetchVersions(artifact, repositories) : null;
+            if (versions == null) {
+                versions = artifactMetadataSource.retrieveAvailableVersions(artifact, localRepository, repositories);
+            }
             lowerVersions = new ArrayList<>(versions.size());
             for (ArtifactVersion version : versions) {
                 if (version.compareTo(artifact.getSelectedVersion()) < 0) {
@@ -137,4 +347,33 @@ public class DependencyMetadataGenerateMojo extends AbstractDependencyMetadataMo
         }
         return lowerVersions;
     }
+
+    /**
+     * @return versions available in the given repositories or null if they can not be fetched conditionally
+     */
+    private List<ArtifactVersion> fetchVersions(Artifact artifact, List<ArtifactRepository> repositories) {
+        ConditionalVersionFetcher fetcher = new ConditionalVersionFetcher(new File(localRepository.getBasedir(),
+                ".dependency-metadata" + File.separator + "versions"),
+                (int) TimeUnit.SECONDS.toMillis(versionsFetchTimeoutSeconds));
+        long start = System.nanoTime();
+        Set<String> fetchedVersions;
+        try {
+            fetchedVersions = fetcher.fetchVersions(artifact.getGroupId(), artifact.getArtifactId(), repositories);
+        } catch (IOException e) {
+            logger.warn("Conditional fetch of versions of {} failed, resolving them instead: {}", artifact,
+                    e.getMessage());
+            return null;
+        } finally {
+            statistics.recordTiming(artifact.getId(), ExecutionStatistics.RESOLVE, System.nanoTime() - start);
+        }
+        if (fetchedVersions == null) {
+            logger.debug("Versions of {} can not be fetched conditionally, resolving them instead", artifact);
+            return null;
+        }
+        List<ArtifactVersion> versions = new ArrayList<>(fetchedVersions.size());
+        for (String version : fetchedVersions) {
+            versions.add(new DefaultArtifactVersion(version));
+        }
+        return versions;
+    }
 }
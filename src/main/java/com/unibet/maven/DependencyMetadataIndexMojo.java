@@ -0,0 +1,179 @@
+package com.unibet.maven;
+
+/*
+ * Copyright 2014 North Development AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.unibet.maven.domain.Metadata;
+import com.unibet.maven.domain.MetadataIndex;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * <p>Builds single metadata index artifact containing metadata of every artifact version found in a repository
+ * directory for the given group id. The index artifact is attached to the project, so it can be published with
+ * the deploy goal and referenced by the verify goal instead of resolving each metadata artifact remotely.</p>
+ */
+@Mojo(name = "index", defaultPhase = LifecyclePhase.GENERATE_RESOURCES, threadSafe = true)
+public class DependencyMetadataIndexMojo extends AbstractDependencyMetadataMojo {
+
+    /**
+     * Group id to be indexed including all of its sub groups. Empty value indexes the whole repository.
+     */
+    @Parameter(property = "dependency.metadata.indexGroupId", defaultValue = "${project.groupId}")
+    private String indexGroupId;
+
+    /**
+     * Repository directory in default layout to be scanned for metadata artifacts, e.g. repository manager storage
+     */
+    @Parameter(property = "dependency.metadata.repositoryDirectory", defaultValue = "${settings.localRepository}")
+    private File repositoryDirectory;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        MetadataIndex index = new MetadataIndex();
+        index.formatVersion = this.formatVersion;
+        index.groupId = getIndexGroupId();
+        for (Map.Entry<String, Path> entry : scanMetadataArtifacts().entrySet()) {
+            Metadata metadata;
+            try {
+                metadata = OBJECT_MAPPER.readValue(entry.getValue().toFile(), Metadata.class);
+            } catch (IOException e) {
+                logger.warn("Skipping unreadable metadata artifact {}: {}", entry.getValue(), e.getMessage());
+                continue;
+            }
+            index.entries.put(entry.getKey(), metadata);
+            logger.debug("Indexed metadata of {}", entry.getKey());
+        }
+
+        File indexFile = getAttachedFile(METADATA_INDEX_CLASSIFIER, METADATA_ARTIFACT_TYPE);
+        try {
+            OBJECT_MAPPER.writeValue(indexFile, index);
+        } catch (IOException e) {
+            throw new MojoFailureException("Failed creating metadata index artifact file " + indexFile, e);
+        }
+        attach(indexFile, METADATA_INDEX_CLASSIFIER, METADATA_ARTIFACT_TYPE);
+        logger.info("Metadata index artifact with {} entries generated: {}", index.entries.size(), indexFile);
+    }
+
+    /**
+     * @return indexed group id, empty if whole repository is indexed
+     */
+    protected String getIndexGroupId() {
+        return indexGroupId == null ? "" : indexGroupId;
+    }
+
+    /**
+     * Scans repository directory for metadata artifacts of the indexed group id
+     *
+     * @return metadata artifact files keyed by <code>groupId:artifactId:version</code>
+     */
+    protected Map<String, Path> scanMetadataArtifacts() throws MojoExecutionException {
+        final Map<String, Path> result = new TreeMap<>();
+        final Path repositoryPath = repositoryDirectory.toPath();
+        String groupId = getIndexGroupId();
+        Path groupPath = groupId.isEmpty() ? repositoryPath :
+                repositoryPath.resolve(groupId.replace('.', File.separatorChar));
+        if (Files.isDirectory(groupPath)) {
+            try {
+                Files.walkFileTree(groupPath, new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                        addMetadataArtifact(result, repositoryPath, repositoryPath.relativize(file));
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                throw new MojoExecutionException("Failed scanning repository directory " + groupPath, e);
+            }
+        } else {
+            logger.warn("Repository directory {} does not exist", groupPath);
+        }
+        return result;
+    }
+
+    /**
+     * @return build directory file of the project artifact with the given classifier and type
+     */
+    protected File getAttachedFile(String classifier, String type) {
+        new File(project.getBuild().getDirectory()).mkdirs();
+        String filename = project.getArtifactId() + "-" + project.getArtifact().getVersion() + "-" + classifier +
+                "." + type;
+        return new File(project.getBuild().getDirectory() + File.separator + filename);
+    }
+
+    protected void attach(File file, String classifier, String type) {
+        Artifact artifact = project.getArtifact();
+        Artifact attachedArtifact = artifactFactory.createArtifactWithClassifier(artifact.getGroupId(),
+                artifact.getArtifactId(), artifact.getVersion(), type, classifier);
+        attachedArtifact.setFile(file);
+        project.addAttachedArtifact(attachedArtifact);
+    }
+
+    /**
+     * Adds given path if it is metadata artifact in default repository layout,
+     * i.e. <code>group/path/artifactId/version/artifactId-version-metadata.json</code>. Timestamped snapshot
+     * file names of remote repository storage are accepted as well, the latest one wins.
+     */
+    private void addMetadataArtifact(Map<String, Path> result, Path repositoryPath, Path relativePath) {
+        int count = relativePath.getNameCount();
+        if (count < 4) {
+            return;
+        }
+        String version = relativePath.getName(count - 2).toString();
+        String artifactId = relativePath.getName(count - 3).toString();
+        String fileName = relativePath.getFileName().toString();
+        String suffix = "-" + METADATA_ARTIFACT_CLASSIFIER + "." + METADATA_ARTIFACT_TYPE;
+        if (!fileName.equals(artifactId + "-" + version + suffix) && !isTimestampedSnapshot(fileName, artifactId,
+                version, suffix)) {
+            return;
+        }
+        String groupId = relativePath.subpath(0, count - 3).toString().replace(File.separatorChar, '.');
+        String key = MetadataIndex.key(groupId, artifactId, version);
+        Path file = repositoryPath.resolve(relativePath);
+        Path previous = result.get(key);
+        if (previous == null || previous.getFileName().toString().compareTo(fileName) < 0) {
+            result.put(key, file);
+        }
+    }
+
+    private static boolean isTimestampedSnapshot(String fileName, String artifactId, String version,
+                                                 String suffix) {
+        if (!version.endsWith(Artifact.SNAPSHOT_VERSION)) {
+            return false;
+        }
+        String prefix = artifactId + "-" + version.substring(0, version.length() -
+                Artifact.SNAPSHOT_VERSION.length());
+        if (!fileName.startsWith(prefix) || !fileName.endsWith(suffix)) {
+            return false;
+        }
+        return Artifact.VERSION_FILE_PATTERN.matcher(fileName.substring(artifactId.length() + 1,
+                fileName.length() - suffix.length())).matches();
+    }
+}
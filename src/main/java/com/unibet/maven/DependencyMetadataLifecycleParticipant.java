@@ -0,0 +1,46 @@
+package com.unibet.maven;
+
+/*
+ * Copyright 2014 North Development AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.unibet.maven.cache.ParsedMetadataCache;
+import com.unibet.maven.cache.SessionResolutionCache;
+import org.apache.maven.AbstractMavenLifecycleParticipant;
+import org.apache.maven.execution.MavenSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>Reports cumulative metadata cache statistics once all projects of the session are built, regardless of the
+ * order projects of a parallel build finish in. Active only if the plugin is declared with
+ * <code>&lt;extensions&gt;true&lt;/extensions&gt;</code>.</p>
+ */
+public class DependencyMetadataLifecycleParticipant extends AbstractMavenLifecycleParticipant {
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    @Override
+    public void afterSessionEnd(MavenSession session) {
+        SessionResolutionCache resolutionCache = SessionResolutionCache.remove(session);
+        if (resolutionCache == null) {
+            return;
+        }
+        logger.info("Dependency metadata session cache: {} hits, {} misses, {} verifications replayed",
+                resolutionCache.getHits(), resolutionCache.getMisses(), resolutionCache.getReplays());
+        ParsedMetadataCache parsedMetadata = ParsedMetadataCache.getInstance();
+        logger.debug("Parsed metadata cache: {} entries, {} hits, {} misses", parsedMetadata.size(),
+                parsedMetadata.getHits(), parsedMetadata.getMisses());
+    }
+}
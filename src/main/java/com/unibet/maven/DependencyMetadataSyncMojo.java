@@ -0,0 +1,257 @@
+package com.unibet.maven;
+
+/*
+ * Copyright 2014 North Development AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.unibet.maven.domain.MetadataIndex;
+import com.unibet.maven.report.ExecutionStatistics;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.resolver.ArtifactNotFoundException;
+import org.apache.maven.artifact.resolver.ArtifactResolutionException;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * <p>Bulk synchronization of metadata artifacts listed in metadata indexes into the local repository, so that the
+ * verify goal can run in offline mode. Metadata artifacts already present in the local repository are not fetched
+ * again unless they are snapshots, which are revalidated according to the repository update policy.</p>
+ * <p>Synchronized metadata can be exported to a single bundle archive and imported on another machine, e.g. when
+ * baking build agent images.</p>
+ */
+@Mojo(name = "sync", requiresProject = false, threadSafe = true)
+public class DependencyMetadataSyncMojo extends AbstractDependencyMetadataMojo {
+
+    /**
+     * Group ids, including their sub groups, to be synchronized. All metadata listed in the indexes is synchronized
+     * if empty.
+     */
+    @Parameter(property = "dependency.metadata.syncGroupIds")
+    private List<String> syncGroupIds;
+
+    /**
+     * Bundle archive the metadata indexes and synchronized metadata artifacts are exported to
+     */
+    @Parameter(property = "dependency.metadata.exportBundle")
+    private File exportBundle;
+
+    /**
+     * Bundle archive imported into the local repository before synchronization
+     */
+    @Parameter(property = "dependency.metadata.importBundle")
+    private File importBundle;
+
+    private final ExecutionStatistics statistics = new ExecutionStatistics("sync");
+
+    private MetadataArtifactResolver artifactResolver;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        if (importBundle != null) {
+            importBundle();
+        }
+
+        RepositoryRouter repositoryRouter = new RepositoryRouter(repositoryRoutes, remoteRepositories);
+        artifactResolver = createArtifactResolver();
+        Map<Artifact, MetadataIndex> metadataIndexes = resolveMetadataIndexes(repositoryRouter, artifactResolver);
+        if (metadataIndexes.isEmpty()) {
+            logger.warn("No metadata indexes configured. Nothing to synchronize...");
+            return;
+        }
+
+        List<Artifact> metadataArtifacts = new ArrayList<>();
+        for (MetadataIndex index : metadataIndexes.values()) {
+            for (String key : index.entries.keySet()) {
+                String[] coordinates = key.split(":");
+                if (coordinates.length == 3 && isSynchronized(coordinates[0])) {
+                    metadataArtifacts.add(artifactFactory.createArtifactWithClassifier(coordinates[0],
+                            coordinates[1], coordinates[2], METADATA_ARTIFACT_TYPE, METADATA_ARTIFACT_CLASSIFIER));
+                }
+            }
+        }
+
+        List<Artifact> synchronizedArtifacts = fetch(metadataArtifacts, repositoryRouter);
+        logger.info("Synchronized {} of {} metadata artifacts", synchronizedArtifacts.size(),
+                metadataArtifacts.size());
+        reportStatistics(statistics);
+
+        if (exportBundle != null) {
+            List<Artifact> exportedArtifacts = new ArrayList<>(metadataIndexes.keySet());
+            exportedArtifacts.addAll(synchronizedArtifacts);
+            exportBundle(exportedArtifacts);
+        }
+    }
+
+    private boolean isSynchronized(String groupId) {
+        if (syncGroupIds == null || syncGroupIds.isEmpty()) {
+            return true;
+        }
+        for (String syncGroupId : syncGroupIds) {
+            if (groupId.equals(syncGroupId) || groupId.startsWith(syncGroupId + ".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Fetches metadata artifacts concurrently
+     *
+     * @return metadata artifacts available in the local repository
+     */
+    private List<Artifact> fetch(List<Artifact> metadataArtifacts, final RepositoryRouter repositoryRouter)
+            throws MojoExecutionException {
+        ExecutorService executor = createExecutor(metadataArtifacts.size());
+        List<Future<Boolean>> futures = new ArrayList<>(metadataArtifacts.size());
+        try {
+            for (final Artifact metadataArtifact : metadataArtifacts) {
+                futures.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        return fetch(metadataArtifact, repositoryRouter.route(metadataArtifact.getGroupId()));
+                    }
+                }));
+            }
+
+            List<Artifact> fetchedArtifacts = new ArrayList<>(metadataArtifacts.size());
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    if (futures.get(i).get()) {
+                        fetchedArtifacts.add(metadataArtifacts.get(i));
+                    }
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof MojoExecutionException) {
+                        throw (MojoExecutionException) e.getCause();
+                    }
+                    throw new MojoExecutionException("Failed synchronizing metadata artifact", e.getCause());
+                }
+            }
+            return fetchedArtifacts;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while synchronizing metadata artifacts", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return true if metadata artifact is available in the local repository
+     */
+    private boolean fetch(Artifact metadataArtifact, List<ArtifactRepository> repositories)
+            throws MojoExecutionException {
+        File localFile = artifactResolver.getLocalFile(metadataArtifact);
+        if (localFile.isFile() && !metadataArtifact.isSnapshot()) {
+            logger.debug("Metadata artifact {} already synchronized", metadataArtifact);
+            statistics.recordHit("local", 0);
+            metadataArtifact.setFile(localFile);
+            return true;
+        }
+
+        String repositoryKey = ExecutionStatistics.repositoryKey(repositories);
+        long start = System.nanoTime();
+        try {
+            artifactResolver.resolve(metadataArtifact, repositories);
+            statistics.recordHit(repositoryKey, metadataArtifact.getFile().length());
+            return true;
+        } catch (ArtifactResolutionException e) {
+            statistics.recordError(repositoryKey);
+            throw new MojoExecutionException("Failed resolving metadata artifact " + metadataArtifact, e);
+        } catch (ArtifactNotFoundException e) {
+            logger.warn("Indexed metadata artifact {} NOT found", metadataArtifact);
+            statistics.recordMiss(repositoryKey);
+            return false;
+        } finally {
+            statistics.recordTiming(metadataArtifact.getId(), ExecutionStatistics.RESOLVE, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Writes bundle archive with local repository files of the given artifacts using local repository layout paths
+     */
+    private void exportBundle(List<Artifact> artifacts) throws MojoExecutionException {
+        Path basePath = new File(localRepository.getBasedir()).toPath().toAbsolutePath();
+        File parent = exportBundle.getAbsoluteFile().getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new MojoExecutionException("Failed creating bundle directory " + parent);
+        }
+        int count = 0;
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(exportBundle))) {
+            for (Artifact artifact : artifacts) {
+                Path file = artifact.getFile().toPath().toAbsolutePath();
+                if (!file.startsWith(basePath)) {
+                    logger.warn("Skipping {} outside of the local repository", file);
+                    continue;
+                }
+                String name = basePath.relativize(file).toString().replace(File.separatorChar, '/');
+                out.putNextEntry(new ZipEntry(name));
+                Files.copy(file, out);
+                out.closeEntry();
+                count++;
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed exporting metadata bundle " + exportBundle, e);
+        }
+        logger.info("Exported {} metadata files to {}", count, exportBundle);
+    }
+
+    /**
+     * Extracts bundle archive into the local repository
+     */
+    private void importBundle() throws MojoExecutionException {
+        Path basePath = new File(localRepository.getBasedir()).toPath().toAbsolutePath().normalize();
+        int count = 0;
+        try (ZipInputStream in = new ZipInputStream(new FileInputStream(importBundle))) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                Path target = basePath.resolve(entry.getName()).normalize();
+                if (!target.startsWith(basePath)) {
+                    throw new MojoExecutionException("Bundle entry " + entry.getName() +
+                            " points outside of the local repository");
+                }
+                Files.createDirectories(target.getParent());
+                Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+                count++;
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed importing metadata bundle " + importBundle, e);
+        }
+        logger.info("Imported {} metadata files from {}", count, importBundle);
+    }
+}
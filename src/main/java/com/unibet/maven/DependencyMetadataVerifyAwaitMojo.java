@@ -0,0 +1,66 @@
+package com.unibet.maven;
+
+/*
+ * Copyright 2014 North Development AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * <p>This mojo waits for verification started by {@link DependencyMetadataVerifyStartMojo} and reports its
+ * findings, failing the build if any dependency metadata fails. If no verification was started for the project,
+ * dependencies are verified synchronously.</p>
+ */
+@Mojo(name = "verify-await", defaultPhase = LifecyclePhase.PREPARE_PACKAGE,
+        requiresDependencyResolution = ResolutionScope.TEST, threadSafe = true)
+public class DependencyMetadataVerifyAwaitMojo extends DependencyMetadataVerifyMojo {
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        Future<List<MetadataFinding>> verification = PendingVerifications.remove(session, project);
+        if (verification == null) {
+            logger.warn("No background verification was started for {}. Verifying synchronously...",
+                    project.getId());
+            super.execute();
+            return;
+        }
+
+        List<MetadataFinding> findings;
+        try {
+            if (!verification.isDone()) {
+                logger.info("Waiting for background dependency metadata verification...");
+            }
+            findings = verification.get();
+        } catch (InterruptedException e) {
+            verification.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while waiting for dependency metadata verification", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof MojoExecutionException) {
+                throw (MojoExecutionException) e.getCause();
+            }
+            throw new MojoExecutionException("Dependency metadata verification failed", e.getCause());
+        }
+        report(findings);
+    }
+}
@@ -16,21 +16,41 @@ package com.unibet.maven;
  * limitations under the License.
  */
 
+import com.unibet.maven.cache.MappedMetadataStore;
+import com.unibet.maven.cache.NegativeLookupCache;
+import com.unibet.maven.cache.ParsedMetadataCache;
+import com.unibet.maven.cache.SessionResolutionCache;
 import com.unibet.maven.domain.Metadata;
+import com.unibet.maven.domain.MetadataIndex;
+import com.unibet.maven.domain.VerifyState;
+import com.unibet.maven.report.ExecutionStatistics;
 import org.apache.maven.artifact.Artifact;
-import org.apache.maven.artifact.resolver.ArtifactNotFoundException;
-import org.apache.maven.artifact.resolver.ArtifactResolutionException;
-import org.apache.maven.artifact.resolver.ArtifactResolutionResult;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
+import org.apache.maven.artifact.resolver.filter.ScopeArtifactFilter;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
-import org.apache.maven.project.artifact.InvalidDependencyVersionException;
+import org.apache.maven.plugins.annotations.ResolutionScope;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * <p>This mojo will try to resolve and process metadata artifacts for all direct and transitive (if defined)
@@ -39,7 +59,8 @@ import java.util.Set;
  *
  * @author Ilja Bobkevic <ilja.bobkevic@unibet.com>
  */
-@Mojo(name = "verify", defaultPhase = LifecyclePhase.PROCESS_RESOURCES, threadSafe = true)
+@Mojo(name = "verify", defaultPhase = LifecyclePhase.PROCESS_RESOURCES,
+        requiresDependencyResolution = ResolutionScope.TEST, threadSafe = true)
 public class DependencyMetadataVerifyMojo extends AbstractDependencyMetadataMojo {
 
     /**
@@ -48,63 +69,539 @@ public class DependencyMetadataVerifyMojo extends AbstractDependencyMetadataMojo
     @Parameter(property = "dependency.metadata.transitive", defaultValue = "false")
     private boolean transitive;
 
+    /**
+     * Scope of verified dependencies. Scopes are included the same way as for class paths, e.g. <code>test</code>
+     * includes dependencies of all scopes and <code>runtime</code> includes compile and runtime dependencies.
+     */
+    @Parameter(property = "dependency.metadata.scope", defaultValue = Artifact.SCOPE_TEST)
+    private String scope;
+
+    /**
+     * Patterns of verified dependencies in <code>groupId[:artifactId[:scope]]</code> format, e.g.
+     * <code>com.unibet*</code>. Segments may contain <code>*</code> wildcards. All dependencies are verified if
+     * empty.
+     */
+    @Parameter(property = "dependency.metadata.includes")
+    private List<String> includes;
+
+    /**
+     * Patterns of dependencies excluded from verification in the same format as includes
+     */
+    @Parameter(property = "dependency.metadata.excludes")
+    private List<String> excludes;
+
+    /**
+     * If true outstanding metadata lookups are cancelled as soon as failing metadata is found.
+     */
+    @Parameter(property = "dependency.metadata.failFast", defaultValue = "true")
+    private boolean failFast;
+
+    /**
+     * If true metadata artifacts known to be missing remotely are not looked up again until the entry expires.
+     */
+    @Parameter(property = "dependency.metadata.negativeCache", defaultValue = "true")
+    private boolean negativeCache;
+
+    /**
+     * Directory of the persistent negative lookup cache. Defaults to <code>.dependency-metadata</code> directory in
+     * the local repository.
+     */
+    @Parameter(property = "dependency.metadata.negativeCacheDirectory")
+    private File negativeCacheDirectory;
+
+    /**
+     * Time in seconds a missing metadata artifact is trusted for
+     */
+    @Parameter(property = "dependency.metadata.negativeCacheTtlSeconds", defaultValue = "86400")
+    private long negativeCacheTtlSeconds;
+
+    /**
+     * If true missing metadata artifacts of release versions are cached permanently
+     */
+    @Parameter(property = "dependency.metadata.negativeCacheReleasesPermanent", defaultValue = "false")
+    private boolean negativeCacheReleasesPermanent;
+
+    /**
+     * If true negative lookup cache entries are ignored and every metadata artifact is revalidated remotely
+     */
+    @Parameter(property = "dependency.metadata.forceUpdate", defaultValue = "false")
+    private boolean forceUpdate;
+
+    /**
+     * If true metadata is looked up in the local repository only, e.g. after importing a bundle exported by the sync
+     * goal. Remote repositories are never contacted.
+     */
+    @Parameter(property = "dependency.metadata.offline", defaultValue = "false")
+    private boolean offline;
+
+    /**
+     * If true verification is skipped when the dependency set and configuration have not changed since the previous
+     * verification within the freshness window. Outcome of the previous verification is reported instead, so metadata
+     * published or synchronized in the meantime is not seen until the window has passed.
+     */
+    @Parameter(property = "dependency.metadata.incremental", defaultValue = "false")
+    private boolean incremental;
+
+    /**
+     * Time in seconds outcome of the previous verification is reused for
+     */
+    @Parameter(property = "dependency.metadata.incrementalFreshnessSeconds", defaultValue = "3600")
+    private long incrementalFreshnessSeconds;
+
+    /**
+     * If true version range rules metadata artifact is resolved once per dependency groupId:artifactId and matched
+     * against dependency versions in memory. Rules are a snapshot artifact, so updated rules are picked up according
+     * to the snapshot update policy of the repositories, e.g. daily or immediately with <code>-U</code>. Dependency
+     * versions outside of the rules version range are looked up individually. Enable only if rules are published,
+     * every dependency costs an extra lookup otherwise.
+     */
+    @Parameter(property = "dependency.metadata.versionRules", defaultValue = "false")
+    private boolean versionRules;
+
+    /**
+     * If false metadata artifacts of individual dependency versions are not resolved, i.e. only version range rules
+     * are verified.
+     */
+    @Parameter(property = "dependency.metadata.versionLookup", defaultValue = "true")
+    private boolean versionLookup;
+
+    /**
+     * Memory cap in bytes of the JVM wide parsed metadata cache reused by consecutive builds of a persistent build
+     * daemon. Zero disables the cache.
+     */
+    @Parameter(property = "dependency.metadata.parsedCacheMaxBytes", defaultValue = "16777216")
+    private long parsedCacheMaxBytes;
+
+    /**
+     * Endpoint of a metadata service answering metadata of all dependencies in a single batch request. Only
+     * dependencies whose group is routed to remote repositories are sent. Metadata is resolved through the
+     * repositories if the service is not available.
+     */
+    @Parameter(property = "dependency.metadata.service")
+    private String metadataService;
+
+    /**
+     * Connect and read timeout of the metadata service in seconds
+     */
+    @Parameter(property = "dependency.metadata.serviceTimeoutSeconds", defaultValue = "30")
+    private int metadataServiceTimeoutSeconds;
+
+    /**
+     * Total time in seconds given to metadata lookups, zero for no limit. Metadata of dependencies not looked up in
+     * time is taken from the local repository, even if stale, and the build is not blocked any longer.
+     */
+    @Parameter(property = "dependency.metadata.timeBudgetSeconds", defaultValue = "0")
+    private long timeBudgetSeconds;
+
+    /**
+     * Time in seconds given to metadata lookup of a single dependency, zero for no limit. Metadata of a dependency
+     * not looked up in time is taken from the local repository the same way as when time budget runs out.
+     */
+    @Parameter(property = "dependency.metadata.lookupTimeoutSeconds", defaultValue = "0")
+    private long lookupTimeoutSeconds;
+
+    /**
+     * If true lookups running out of time are left running in background instead of being cancelled, refreshing
+     * the local repository for the next build as long as the build JVM lives
+     */
+    @Parameter(property = "dependency.metadata.backgroundRefresh", defaultValue = "false")
+    private boolean backgroundRefresh;
+
+    /**
+     * If true known metadata lookup outcomes, both present and absent, are kept in a single memory mapped store file
+     * answering lookups without probing the local repository. The store is shared by concurrent builds.
+     */
+    @Parameter(property = "dependency.metadata.localStore", defaultValue = "false")
+    private boolean localStore;
+
+    /**
+     * Local metadata store file. Defaults to <code>.dependency-metadata/metadata.store</code> in the local
+     * repository.
+     */
+    @Parameter(property = "dependency.metadata.localStoreFile")
+    private File localStoreFile;
+
+    /**
+     * Time in seconds an outcome kept in the local metadata store is trusted for
+     */
+    @Parameter(property = "dependency.metadata.localStoreTtlSeconds", defaultValue = "86400")
+    private long localStoreTtlSeconds;
+
+    /**
+     * Verified dependencies in sorted order, captured by {@link #prepare()}
+     */
+    private List<Artifact> dependencies;
+
+    private String fingerprint;
+
+    private String buildDirectory;
+
+    private MetadataArtifactResolver artifactResolver;
+
+    private ExecutorService executor;
+
+    private List<MetadataIndex> metadataIndexes;
+
+    private List<MetadataBloomFilter> metadataFilters;
+
+    /**
+     * Keys answered by the metadata service, null if the service was not queried
+     */
+    private Set<String> serviceKeys;
+
+    private Map<String, Metadata> serviceMetadata;
+
+    /**
+     * True if any metadata was taken from the local repository because its lookup ran out of time
+     */
+    private boolean stale;
+
+    private NegativeLookupCache missingArtifacts;
+
+    private MappedMetadataStore metadataStore;
+
+    private SessionResolutionCache resolutionCache;
+
+    private RepositoryRouter repositoryRouter;
+
+    private final ExecutionStatistics statistics = new ExecutionStatistics("verify");
+
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
-        Set<Artifact> dependencies = getDependencies(transitive);
+        prepare();
+        report(verify());
+    }
 
-        for (Artifact dependencyArtifact : dependencies) {
-            Artifact metadataArtifact = artifactFactory.createArtifactWithClassifier(dependencyArtifact.getGroupId(),
-                    dependencyArtifact.getArtifactId(), dependencyArtifact.getVersion(), METADATA_ARTIFACT_TYPE,
-                    METADATA_ARTIFACT_CLASSIFIER);
-            try {
-                resolver.resolve(metadataArtifact, remoteRepositories, localRepository);
-                logger.debug("Artifact {} found", metadataArtifact);
-                Metadata metadata = parseMetadataJson(metadataArtifact.getFile());
-                if (metadata.formatVersion == this.formatVersion) {
-                    if (metadata.fail) {
-                        logger.error("------------------------------------------------------------------------");
-                        logger.error("Metadata source: {}", metadataArtifact);
-                        logger.error(metadata.message);
-                        logger.error("------------------------------------------------------------------------");
-                        throw new MojoFailureException("There were dependency metadata failures");
-                    } else {
-                        logger.warn("------------------------------------------------------------------------");
-                        logger.warn("Metadata source: {}", metadataArtifact);
-                        logger.warn(metadata.message);
-                        logger.warn("------------------------------------------------------------------------");
-                    }
+    /**
+     * Captures verified dependencies, the repository system session and everything else verification takes from the
+     * project and the session. Must be called by the thread executing the mojo, {@link #verify()} may then run in
+     * any thread, even after the mojo execution has finished.
+     */
+    protected void prepare() throws MojoExecutionException {
+        dependencies = new ArrayList<>(getDependencies(transitive));
+        Collections.sort(dependencies);
+        fingerprint = fingerprint(dependencies);
+        buildDirectory = project.getBuild().getDirectory();
+        resolutionCache = SessionResolutionCache.forSession(session);
+        artifactResolver = createArtifactResolver();
+        repositoryRouter = offline ? new RepositoryRouter(null, Collections.<ArtifactRepository>emptyList()) :
+                new RepositoryRouter(repositoryRoutes, remoteRepositories);
+        executor = createExecutor(dependencies.size());
+    }
+
+    /**
+     * Resolves metadata of the dependencies captured by {@link #prepare()} or replays outcome of the previous
+     * verification
+     *
+     * @return findings ordered the same way as the dependencies
+     */
+    protected List<MetadataFinding> verify() throws MojoExecutionException {
+        try {
+            return resolveOrReplay();
+        } finally {
+            // Lookups left running in background are not interrupted
+            executor.shutdown();
+        }
+    }
+
+    private List<MetadataFinding> resolveOrReplay() throws MojoExecutionException {
+        File stateFile = new File(buildDirectory, "dependency-metadata" + File.separator + "verify-state.json");
+        if (incremental && !forceUpdate) {
+            VerifyState state = loadVerifyState(stateFile);
+            if (state != null && fingerprint.equals(state.fingerprint) && System.currentTimeMillis() -
+                    state.timestamp <= TimeUnit.SECONDS.toMillis(incrementalFreshnessSeconds)) {
+                logger.info("Dependencies unchanged since previous verification. Reporting its outcome...");
+                List<MetadataFinding> findings = new ArrayList<>(state.findings.size());
+                for (Map.Entry<String, Metadata> entry : state.findings.entrySet()) {
+                    findings.add(new MetadataFinding(entry.getKey(), entry.getValue()));
                 }
-            } catch (ArtifactResolutionException e) {
-                throw new MojoExecutionException("Failed resolving metadata artifact " + metadataArtifact, e);
-            } catch (ArtifactNotFoundException e) {
-                logger.debug("Artifact {} NOT found", metadataArtifact);
+                resolutionCache.recordReplay();
+                logResolutionCacheStatistics();
+                return findings;
             }
         }
+
+        ParsedMetadataCache.getInstance().setMaxBytes(parsedCacheMaxBytes);
+        metadataIndexes = new ArrayList<>(resolveMetadataIndexes(repositoryRouter, artifactResolver).values());
+        metadataFilters = resolveMetadataFilters(repositoryRouter, artifactResolver);
+        if (metadataService != null && !metadataService.isEmpty() && !offline) {
+            queryMetadataService(dependencies);
+        }
+        if (negativeCache) {
+            missingArtifacts = loadNegativeLookupCache();
+        }
+        if (localStore) {
+            metadataStore = openMetadataStore();
+        }
+        List<MetadataFinding> findings;
+        try {
+            findings = resolveMetadata(dependencies, createLookup());
+        } finally {
+            saveNegativeLookupCache();
+            logResolutionCacheStatistics();
+            reportStatistics(statistics, buildDirectory);
+        }
+
+        if (incremental && !stale) {
+            saveVerifyState(stateFile, fingerprint, findings);
+        }
+        return findings;
     }
 
-    @SuppressWarnings("unchecked")
-    private Set<Artifact> getDependencies(boolean transitive) throws MojoExecutionException {
-        Set<Artifact> artifacts;
+    /**
+     * @return lookup of single dependency metadata through all configured metadata sources
+     */
+    private MetadataLookup createLookup() {
+        MetadataLookup lookup = new MetadataLookup(formatVersion, artifactResolver, repositoryRouter, resolutionCache,
+                statistics);
+        lookup.setVersionRules(versionRules, versionLookup);
+        lookup.setForceUpdate(forceUpdate);
+        lookup.setMetadataIndexes(metadataIndexes);
+        lookup.setMetadataFilters(metadataFilters);
+        lookup.setServiceMetadata(serviceKeys, serviceMetadata);
+        lookup.setNegativeLookupCache(missingArtifacts);
+        lookup.setMetadataStore(metadataStore, TimeUnit.SECONDS.toMillis(localStoreTtlSeconds));
+        return lookup;
+    }
+
+    protected void report(List<MetadataFinding> findings) throws MojoFailureException {
+        int failures = 0;
+        for (MetadataFinding finding : findings) {
+            if (finding.isFailure()) {
+                failures++;
+                logger.error("------------------------------------------------------------------------");
+                logger.error("Metadata source: {}", finding.getSource());
+                logger.error(finding.getMetadata().message);
+                logger.error("------------------------------------------------------------------------");
+            } else {
+                logger.warn("------------------------------------------------------------------------");
+                logger.warn("Metadata source: {}", finding.getSource());
+                logger.warn(finding.getMetadata().message);
+                logger.warn("------------------------------------------------------------------------");
+            }
+        }
+        if (failures > 0) {
+            throw new MojoFailureException("There were dependency metadata failures");
+        }
+    }
+
+    /**
+     * @return hex encoded SHA-256 of sorted dependency coordinates and of all configuration findings depend on
+     */
+    private String fingerprint(List<Artifact> dependencies) throws MojoExecutionException {
+        MessageDigest digest;
         try {
-            artifacts = project.createArtifacts(this.artifactFactory, null, null);
-            if (transitive) {
-                ArtifactResolutionResult arr = artifactResolver.resolveTransitively(artifacts, project.getArtifact(),
-                        project.getManagedVersionMap(), localRepository, remoteRepositories, artifactMetadataSource);
-                artifacts.addAll(arr.getArtifacts());
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new MojoExecutionException("Failed creating dependency set fingerprint", e);
+        }
+        List<String> configuration = new ArrayList<>(Arrays.asList("formatVersion=" + formatVersion,
+                "offline=" + offline, "versionRules=" + versionRules, "versionLookup=" + versionLookup,
+                "indexes=" + indexes, "filters=" + filters, "metadataService=" + metadataService));
+        if (repositoryRoutes != null) {
+            for (RepositoryRoute route : repositoryRoutes) {
+                configuration.add("route=" + route.getGroupIdPrefix() + "->" + route.getRepositories());
             }
-        } catch (InvalidDependencyVersionException | ArtifactNotFoundException | ArtifactResolutionException e) {
-            throw new MojoExecutionException("Failed getting project dependencies");
         }
-        return artifacts;
+        for (ArtifactRepository repository : remoteRepositories) {
+            configuration.add("repository=" + repository.getId() + "->" + repository.getUrl());
+        }
+        for (String value : configuration) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+        }
+        for (Artifact dependency : dependencies) {
+            digest.update((byte) '\n');
+            digest.update(MetadataIndex.key(dependency.getGroupId(), dependency.getArtifactId(),
+                    dependency.getVersion()).getBytes(StandardCharsets.UTF_8));
+        }
+        StringBuilder fingerprint = new StringBuilder();
+        for (byte b : digest.digest()) {
+            fingerprint.append(String.format("%02x", b));
+        }
+        return fingerprint.toString();
+    }
+
+    private VerifyState loadVerifyState(File stateFile) {
+        if (!stateFile.isFile()) {
+            return null;
+        }
+        try {
+            return OBJECT_MAPPER.readValue(stateFile, VerifyState.class);
+        } catch (IOException e) {
+            logger.debug("Ignoring unreadable verification state {}: {}", stateFile, e.getMessage());
+            return null;
+        }
+    }
+
+    private void saveVerifyState(File stateFile, String fingerprint, List<MetadataFinding> findings) {
+        VerifyState state = new VerifyState();
+        state.fingerprint = fingerprint;
+        state.timestamp = System.currentTimeMillis();
+        for (MetadataFinding finding : findings) {
+            state.findings.put(finding.getSource(), finding.getMetadata());
+        }
+        stateFile.getParentFile().mkdirs();
+        try {
+            OBJECT_MAPPER.writeValue(stateFile, state);
+        } catch (IOException e) {
+            logger.warn("Failed saving verification state {}: {}", stateFile, e.getMessage());
+        }
+    }
+
+    /**
+     * Session cache statistics are cumulative, so counts of all modules verified so far are logged. The summary of
+     * the whole session is reported by {@link DependencyMetadataLifecycleParticipant}, which requires the plugin to be
+     * declared as extension.
+     */
+    private void logResolutionCacheStatistics() {
+        logger.info("Dependency metadata session cache: {} hits, {} misses, {} verifications replayed so far",
+                resolutionCache.getHits(), resolutionCache.getMisses(), resolutionCache.getReplays());
     }
 
-    private Metadata parseMetadataJson(File file) throws MojoExecutionException {
-        Metadata metadata;
+    private NegativeLookupCache loadNegativeLookupCache() {
+        File directory = negativeCacheDirectory != null ? negativeCacheDirectory :
+                new File(localRepository.getBasedir(), ".dependency-metadata");
+        NegativeLookupCache cache = new NegativeLookupCache(new File(directory, "negative-lookup-cache.properties"),
+                TimeUnit.SECONDS.toMillis(negativeCacheTtlSeconds), negativeCacheReleasesPermanent);
         try {
-            metadata = OBJECT_MAPPER.readValue(file, Metadata.class);
+            cache.load();
         } catch (IOException e) {
-            throw new MojoExecutionException("Failed parsing metadata file " + file, e);
+            logger.warn("Failed loading negative lookup cache: {}", e.getMessage());
         }
-        return metadata;
+        return cache;
+    }
+
+    private MappedMetadataStore openMetadataStore() {
+        File file = localStoreFile != null ? localStoreFile :
+                new File(localRepository.getBasedir(), ".dependency-metadata" + File.separator + "metadata.store");
+        try {
+            return MappedMetadataStore.forFile(file);
+        } catch (IOException e) {
+            logger.warn("Failed opening local metadata store {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private void saveNegativeLookupCache() {
+        if (missingArtifacts != null) {
+            try {
+                missingArtifacts.save();
+            } catch (IOException e) {
+                logger.warn("Failed saving negative lookup cache: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Queries metadata of all dependencies not covered by metadata indexes in a single metadata service request
+     */
+    private void queryMetadataService(List<Artifact> dependencies) throws MojoExecutionException {
+        MetadataServiceClient client;
+        try {
+            client = new MetadataServiceClient(new URL(metadataService),
+                    (int) TimeUnit.SECONDS.toMillis(metadataServiceTimeoutSeconds));
+        } catch (MalformedURLException e) {
+            throw new MojoExecutionException("Invalid metadata service URL " + metadataService, e);
+        }
+        Set<String> keys = new LinkedHashSet<>();
+        for (Artifact dependency : dependencies) {
+            // Groups routed to no repository are looked up in the local repository only and never leave the build
+            if (isIndexed(dependency.getGroupId()) || repositoryRouter.route(dependency.getGroupId()).isEmpty()) {
+                continue;
+            }
+            if (versionRules) {
+                keys.add(MetadataIndex.key(dependency.getGroupId(), getRulesArtifactId(dependency.getArtifactId()),
+                        METADATA_RULES_VERSION));
+            }
+            keys.add(MetadataIndex.key(dependency.getGroupId(), dependency.getArtifactId(),
+                    dependency.getVersion()));
+        }
+        if (keys.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            serviceMetadata = client.query(keys);
+            serviceKeys = keys;
+            logger.debug("Metadata service answered {} of {} keys with metadata", serviceMetadata.size(),
+                    keys.size());
+        } catch (IOException e) {
+            statistics.recordError("service");
+            logger.warn("Metadata service {} is not available, resolving metadata artifacts instead: {}",
+                    metadataService, e.getMessage());
+        } finally {
+            statistics.recordTiming("service", ExecutionStatistics.RESOLVE, System.nanoTime() - start);
+        }
+    }
+
+    private boolean isIndexed(String groupId) {
+        for (MetadataIndex index : metadataIndexes) {
+            if (index.covers(groupId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Resolves metadata of the given dependencies concurrently.
+     *
+     * @param dependencies dependencies to resolve metadata for
+     * @param lookup       lookup of a single dependency
+     * @return findings ordered the same way as the dependencies
+     */
+    private List<MetadataFinding> resolveMetadata(List<Artifact> dependencies, final MetadataLookup lookup)
+            throws MojoExecutionException {
+        ConcurrentMetadataResolver concurrentResolver = new ConcurrentMetadataResolver(executor, failFast,
+                timeBudgetSeconds, lookupTimeoutSeconds, TimeUnit.SECONDS, !backgroundRefresh);
+        List<MetadataFinding> findings = concurrentResolver.resolve(dependencies, lookup,
+                new ConcurrentMetadataResolver.Lookup() {
+                    @Override
+                    public MetadataFinding lookup(Artifact dependency) throws MojoExecutionException {
+                        logger.debug("Metadata of {} taken from the local repository", dependency);
+                        return lookup.lookupLocal(dependency);
+                    }
+                });
+
+        List<Artifact> timedOut = concurrentResolver.getTimedOut();
+        if (!timedOut.isEmpty()) {
+            stale = true;
+            logger.warn("------------------------------------------------------------------------");
+            logger.warn("Metadata lookup of {} dependencies ran out of time. Metadata from the local repository is " +
+                    "used instead and may be stale", timedOut.size());
+            if (backgroundRefresh) {
+                logger.warn("Outstanding lookups continue in background to refresh the local repository");
+            }
+            logger.warn("------------------------------------------------------------------------");
+        }
+        return findings;
+    }
+
+    /**
+     * Dependencies are taken from the graph already resolved by Maven for this mojo
+     */
+    @SuppressWarnings("unchecked")
+    private Set<Artifact> getDependencies(boolean transitive) throws MojoExecutionException {
+        Set<Artifact> resolved = transitive ? project.getArtifacts() : project.getDependencyArtifacts();
+        Set<Artifact> artifacts = new LinkedHashSet<>();
+        if (resolved == null) {
+            return artifacts;
+        }
+        ArtifactFilter scopeFilter = new ScopeArtifactFilter(scope);
+        ArtifactFilter dependencyFilter;
+        try {
+            dependencyFilter = new DependencyFilter(includes, excludes);
+        } catch (IllegalArgumentException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+        for (Artifact artifact : resolved) {
+            if (scopeFilter.include(artifact) && dependencyFilter.include(artifact)) {
+                artifacts.add(artifact);
+            }
+        }
+        logger.debug("Verifying {} of {} dependencies", artifacts.size(), resolved.size());
+        return artifacts;
     }
 }
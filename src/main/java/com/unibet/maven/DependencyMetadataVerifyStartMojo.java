@@ -0,0 +1,61 @@
+package com.unibet.maven;
+
+/*
+ * Copyright 2014 North Development AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * <p>This mojo starts the same verification as {@link DependencyMetadataVerifyMojo} in a background thread and
+ * returns immediately, so metadata lookups overlap with compilation and tests. Outcome is reported by
+ * {@link DependencyMetadataVerifyAwaitMojo}.</p>
+ */
+@Mojo(name = "verify-start", defaultPhase = LifecyclePhase.VALIDATE,
+        requiresDependencyResolution = ResolutionScope.TEST, threadSafe = true)
+public class DependencyMetadataVerifyStartMojo extends DependencyMetadataVerifyMojo {
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        // Project and session must not be touched once this execution has finished
+        prepare();
+        ExecutorService executor = Executors.newSingleThreadExecutor(
+                new DaemonThreadFactory("dependency-metadata-verify-" + project.getArtifactId() + "-"));
+        Future<List<MetadataFinding>> verification = executor.submit(new Callable<List<MetadataFinding>>() {
+            @Override
+            public List<MetadataFinding> call() throws Exception {
+                return verify();
+            }
+        });
+        executor.shutdown();
+
+        Future<List<MetadataFinding>> previous = PendingVerifications.put(session, project, verification);
+        if (previous != null) {
+            logger.debug("Cancelling previously started verification of {}", project.getId());
+            previous.cancel(true);
+        }
+        logger.info("Dependency metadata verification started in background");
+    }
+}
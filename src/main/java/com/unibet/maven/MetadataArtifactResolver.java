@@ -0,0 +1,101 @@
+package com.unibet.maven;
+
+/*
+ * Copyright 2014 North Development AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.apache.maven.RepositoryUtils;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.resolver.ArtifactNotFoundException;
+import org.apache.maven.artifact.resolver.ArtifactResolutionException;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResult;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * <p>Resolves metadata, index and filter artifacts through the repository system session captured while the mojo
+ * executes. Unlike the legacy artifact resolver, which takes the session from the executing mojo, resolution keeps
+ * mirrors, proxies, credentials and offline mode of the build when running in background after the mojo execution
+ * has finished.</p>
+ */
+public class MetadataArtifactResolver {
+    private final RepositorySystem repositorySystem;
+    private final RepositorySystemSession repositorySession;
+
+    public MetadataArtifactResolver(RepositorySystem repositorySystem, RepositorySystemSession repositorySession) {
+        this.repositorySystem = repositorySystem;
+        this.repositorySession = repositorySession;
+    }
+
+    /**
+     * @return location of the artifact in the local repository, the file does not have to exist
+     */
+    public File getLocalFile(Artifact artifact) {
+        return new File(repositorySession.getLocalRepository().getBasedir(), repositorySession
+                .getLocalRepositoryManager().getPathForLocalArtifact(RepositoryUtils.toArtifact(artifact)));
+    }
+
+    /**
+     * Resolves artifact from the given remote repositories into the local repository and sets its file. Without
+     * remote repositories the artifact is read from its path in the local repository, the enhanced local repository
+     * manager would otherwise not accept files synced or downloaded from repositories not given in the request.
+     *
+     * @throws ArtifactNotFoundException   if artifact does not exist in the repositories
+     * @throws ArtifactResolutionException if repositories could not be accessed
+     */
+    public void resolve(Artifact artifact, List<ArtifactRepository> repositories)
+            throws ArtifactResolutionException, ArtifactNotFoundException {
+        if (repositories.isEmpty()) {
+            File file = getLocalFile(artifact);
+            if (!file.isFile()) {
+                throw new ArtifactNotFoundException("Artifact not found in local repository: " + file, artifact);
+            }
+            artifact.setFile(file);
+            artifact.setResolved(true);
+            return;
+        }
+
+        ArtifactRequest request = new ArtifactRequest(RepositoryUtils.toArtifact(artifact),
+                RepositoryUtils.toRepos(repositories), null);
+        ArtifactResult result;
+        try {
+            result = repositorySystem.resolveArtifact(repositorySession, request);
+        } catch (org.eclipse.aether.resolution.ArtifactResolutionException e) {
+            for (ArtifactResult failedResult : e.getResults()) {
+                for (Exception exception : failedResult.getExceptions()) {
+                    if (!(exception instanceof org.eclipse.aether.transfer.ArtifactNotFoundException)) {
+                        throw new ArtifactResolutionException(e.getMessage(), artifact, repositories, e);
+                    }
+                }
+            }
+            throw new ArtifactNotFoundException(e.getMessage(), artifact);
+        }
+
+        artifact.setFile(result.getArtifact().getFile());
+        artifact.setResolved(true);
+        if (result.getRepository() != null) {
+            for (ArtifactRepository repository : repositories) {
+                if (repository.getId().equals(result.getRepository().getId())) {
+                    artifact.setRepository(repository);
+                }
+            }
+        }
+    }
+}
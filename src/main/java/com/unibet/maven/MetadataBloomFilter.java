@@ -0,0 +1,172 @@
+package com.unibet.maven;
+
+/*
+ * Copyright 2014 North Development AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <p>Compact probabilistic set of <code>groupId:artifactId:version</code> keys having metadata artifacts. Absent
+ * keys are reported absent with configured probability, present keys are never reported absent.</p>
+ * <p>Binary format: magic, format version, covered group id, number of hash functions, number of 64 bit words and
+ * the bit words themselves. Bit positions are derived from a single 64 bit hash using double hashing.</p>
+ */
+public class MetadataBloomFilter {
+    private static final int MAGIC = 0x444d4246;
+    private static final int FORMAT_VERSION = 1;
+
+    private final String groupId;
+    private final int hashCount;
+    private final long[] words;
+    private final long bitCount;
+
+    private MetadataBloomFilter(String groupId, int hashCount, long[] words) {
+        this.groupId = groupId;
+        this.hashCount = hashCount;
+        this.words = words;
+        this.bitCount = (long) words.length * Long.SIZE;
+    }
+
+    /**
+     * Creates empty filter sized for the expected number of keys
+     *
+     * @param groupId           group id prefix covered by the filter, empty if filter covers whole repository
+     * @param expectedKeys      number of keys to be added
+     * @param falsePositiveRate probability of absent key being reported present, between 0 and 1 exclusive
+     */
+    public static MetadataBloomFilter create(String groupId, int expectedKeys, double falsePositiveRate) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1 exclusive, was " +
+                    falsePositiveRate);
+        }
+        long keys = Math.max(1, expectedKeys);
+        long bits = (long) Math.ceil(-keys * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int wordCount = (int) Math.max(1, (bits + Long.SIZE - 1) / Long.SIZE);
+        int hashCount = (int) Math.max(1, Math.round((double) wordCount * Long.SIZE / keys * Math.log(2)));
+        return new MetadataBloomFilter(groupId, hashCount, new long[wordCount]);
+    }
+
+    public String getGroupId() {
+        return groupId;
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    /**
+     * @return size of the bit array in bytes
+     */
+    public int getSize() {
+        return words.length * (Long.SIZE / Byte.SIZE);
+    }
+
+    public boolean covers(String dependencyGroupId) {
+        return groupId.isEmpty() || dependencyGroupId.equals(groupId) || dependencyGroupId.startsWith(groupId + ".");
+    }
+
+    public void add(String key) {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = position(h1, h2, i);
+            words[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    /**
+     * @return false if key was definitely not added, true if it probably was
+     */
+    public boolean mightContain(String key) {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = position(h1, h2, i);
+            if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void writeTo(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(groupId);
+            out.writeInt(hashCount);
+            out.writeInt(words.length);
+            for (long word : words) {
+                out.writeLong(word);
+            }
+        }
+    }
+
+    public static MetadataBloomFilter readFrom(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a metadata filter file " + file);
+            }
+            int formatVersion = in.readInt();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IOException("Unsupported metadata filter format version " + formatVersion + " of " + file);
+            }
+            String groupId = in.readUTF();
+            int hashCount = in.readInt();
+            int wordCount = in.readInt();
+            if (hashCount < 1 || wordCount < 1) {
+                throw new IOException("Corrupted metadata filter file " + file);
+            }
+            long[] words = new long[wordCount];
+            for (int i = 0; i < wordCount; i++) {
+                words[i] = in.readLong();
+            }
+            return new MetadataBloomFilter(groupId, hashCount, words);
+        }
+    }
+
+    private long position(int h1, int h2, int i) {
+        long combined = (h1 & 0xffffffffL) + i * (h2 & 0xffffffffL);
+        return (combined & Long.MAX_VALUE) % bitCount;
+    }
+
+    /**
+     * 64 bit FNV-1a of UTF-8 bytes finalized with MurmurHash3 mixing, so both halves are well distributed
+     */
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,47 @@
+package com.unibet.maven;
+
+/*
+ * Copyright 2014 North Development AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.unibet.maven.domain.Metadata;
+
+/**
+ * <p>Metadata resolved for a single dependency</p>
+ */
+public class MetadataFinding {
+    private final String source;
+    private final Metadata metadata;
+
+    public MetadataFinding(String source, Metadata metadata) {
+        this.source = source;
+        this.metadata = metadata;
+    }
+
+    /**
+     * @return metadata artifact identifier the metadata was read from
+     */
+    public String getSource() {
+        return source;
+    }
+
+    public Metadata getMetadata() {
+        return metadata;
+    }
+
+    public boolean isFailure() {
+        return metadata.fail;
+    }
+}
@@ -0,0 +1,426 @@
+package com.unibet.maven;
+
+/*
+ * Copyright 2014 North Development AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.unibet.maven.cache.MappedMetadataStore;
+import com.unibet.maven.cache.NegativeLookupCache;
+import com.unibet.maven.cache.ParsedMetadataCache;
+import com.unibet.maven.cache.SessionResolutionCache;
+import com.unibet.maven.domain.Metadata;
+import com.unibet.maven.domain.MetadataIndex;
+import com.unibet.maven.report.ExecutionStatistics;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.resolver.ArtifactNotFoundException;
+import org.apache.maven.artifact.resolver.ArtifactResolutionException;
+import org.apache.maven.artifact.versioning.DefaultArtifactVersion;
+import org.apache.maven.artifact.versioning.InvalidVersionSpecificationException;
+import org.apache.maven.artifact.versioning.VersionRange;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import static com.unibet.maven.AbstractDependencyMetadataMojo.METADATA_ARTIFACT_CLASSIFIER;
+import static com.unibet.maven.AbstractDependencyMetadataMojo.METADATA_ARTIFACT_TYPE;
+import static com.unibet.maven.AbstractDependencyMetadataMojo.METADATA_RULES_VERSION;
+import static com.unibet.maven.AbstractDependencyMetadataMojo.getRulesArtifactId;
+
+/**
+ * <p>Metadata lookup of a single dependency done by the verify goal. Metadata is taken from the first source
+ * answering it: metadata indexes, metadata service answers, metadata filters, the local metadata store, the negative
+ * lookup cache and finally the repositories the dependency is routed to. Outcomes of repository lookups are shared
+ * through the session resolution cache.</p>
+ * <p>Optional sources are configured before the first lookup, lookups may then run concurrently.</p>
+ */
+public class MetadataLookup implements ConcurrentMetadataResolver.Lookup {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MetadataLookup.class);
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final int formatVersion;
+    private final MetadataArtifactResolver artifactResolver;
+    private final RepositoryRouter repositoryRouter;
+    private final SessionResolutionCache resolutionCache;
+    private final ExecutionStatistics statistics;
+
+    private boolean versionRules;
+    private boolean versionLookup = true;
+    private boolean forceUpdate;
+    private List<MetadataIndex> metadataIndexes = Collections.emptyList();
+    private List<MetadataBloomFilter> metadataFilters = Collections.emptyList();
+    private Set<String> serviceKeys;
+    private Map<String, Metadata> serviceMetadata;
+    private NegativeLookupCache negativeLookupCache;
+    private MappedMetadataStore metadataStore;
+    private long metadataStoreTtlMillis;
+
+    /**
+     * @param formatVersion    supported metadata format version
+     * @param artifactResolver resolver of metadata artifacts
+     * @param repositoryRouter routes of metadata lookups to remote repositories
+     * @param resolutionCache  cache of lookup outcomes shared by all lookups of the session
+     * @param statistics       statistics lookups are recorded in
+     */
+    public MetadataLookup(int formatVersion, MetadataArtifactResolver artifactResolver,
+                          RepositoryRouter repositoryRouter, SessionResolutionCache resolutionCache,
+                          ExecutionStatistics statistics) {
+        this.formatVersion = formatVersion;
+        this.artifactResolver = artifactResolver;
+        this.repositoryRouter = repositoryRouter;
+        this.resolutionCache = resolutionCache;
+        this.statistics = statistics;
+    }
+
+    /**
+     * @param versionRules  if true version range rules metadata artifact is looked up first
+     * @param versionLookup if false metadata artifacts of individual versions are not looked up when version range
+     *                      rules are looked up
+     */
+    public void setVersionRules(boolean versionRules, boolean versionLookup) {
+        this.versionRules = versionRules;
+        this.versionLookup = versionLookup;
+    }
+
+    /**
+     * @param forceUpdate if true negative lookup cache entries and unexpired stored outcomes are ignored
+     */
+    public void setForceUpdate(boolean forceUpdate) {
+        this.forceUpdate = forceUpdate;
+    }
+
+    public void setMetadataIndexes(List<MetadataIndex> metadataIndexes) {
+        this.metadataIndexes = metadataIndexes;
+    }
+
+    public void setMetadataFilters(List<MetadataBloomFilter> metadataFilters) {
+        this.metadataFilters = metadataFilters;
+    }
+
+    /**
+     * @param serviceKeys     keys answered by the metadata service
+     * @param serviceMetadata metadata of the answered keys having metadata
+     */
+    public void setServiceMetadata(Set<String> serviceKeys, Map<String, Metadata> serviceMetadata) {
+        this.serviceKeys = serviceKeys;
+        this.serviceMetadata = serviceMetadata;
+    }
+
+    public void setNegativeLookupCache(NegativeLookupCache negativeLookupCache) {
+        this.negativeLookupCache = negativeLookupCache;
+    }
+
+    /**
+     * @param metadataStore store of lookup outcomes
+     * @param ttlMillis     time a stored outcome is trusted for
+     */
+    public void setMetadataStore(MappedMetadataStore metadataStore, long ttlMillis) {
+        this.metadataStore = metadataStore;
+        this.metadataStoreTtlMillis = ttlMillis;
+    }
+
+    /**
+     * @return metadata artifact of the given dependency coordinates
+     */
+    public static Artifact createMetadataArtifact(String groupId, String artifactId, String version) {
+        return new DefaultArtifact(groupId, artifactId, VersionRange.createFromVersion(version), null,
+                METADATA_ARTIFACT_TYPE, METADATA_ARTIFACT_CLASSIFIER,
+                new DefaultArtifactHandler(METADATA_ARTIFACT_TYPE));
+    }
+
+    @Override
+    public MetadataFinding lookup(Artifact dependency) throws MojoExecutionException {
+        return resolveMetadata(dependency, false);
+    }
+
+    /**
+     * Looks metadata up in the local repository only, e.g. when lookup of the dependency ran out of time
+     *
+     * @return finding or null if dependency has no metadata of supported format
+     */
+    public MetadataFinding lookupLocal(Artifact dependency) throws MojoExecutionException {
+        return resolveMetadata(dependency, true);
+    }
+
+    /**
+     * @param localOnly if true metadata is looked up in the local repository only, bypassing the session cache
+     * @return finding or null if dependency has no metadata of supported format
+     */
+    private MetadataFinding resolveMetadata(Artifact dependencyArtifact, boolean localOnly)
+            throws MojoExecutionException {
+        if (versionRules) {
+            Artifact rulesArtifact = createMetadataArtifact(dependencyArtifact.getGroupId(),
+                    getRulesArtifactId(dependencyArtifact.getArtifactId()), METADATA_RULES_VERSION);
+            Metadata rules = getMetadata(rulesArtifact, localOnly);
+            if (rules != null && rules.versionRange != null && matchesVersionRange(rules, dependencyArtifact)) {
+                // Version range rules supersede metadata artifacts of individual versions within the range
+                return createFinding(rulesArtifact, rules);
+            }
+            if (!versionLookup) {
+                return null;
+            }
+        }
+
+        Artifact metadataArtifact = createMetadataArtifact(dependencyArtifact.getGroupId(),
+                dependencyArtifact.getArtifactId(), dependencyArtifact.getVersion());
+        return createFinding(metadataArtifact, getMetadata(metadataArtifact, localOnly));
+    }
+
+    private MetadataFinding createFinding(Artifact metadataArtifact, Metadata metadata) {
+        if (metadata == null) {
+            return null;
+        }
+        if (metadata.formatVersion != this.formatVersion) {
+            LOGGER.debug("Artifact {} format version {} is not supported", metadataArtifact, metadata.formatVersion);
+            return null;
+        }
+        return new MetadataFinding(metadataArtifact.toString(), metadata);
+    }
+
+    private boolean matchesVersionRange(Metadata rules, Artifact dependencyArtifact) {
+        try {
+            return VersionRange.createFromVersionSpec(rules.versionRange)
+                    .containsVersion(new DefaultArtifactVersion(dependencyArtifact.getVersion()));
+        } catch (InvalidVersionSpecificationException e) {
+            LOGGER.warn("Ignoring invalid metadata version range {} of {}:{}", rules.versionRange,
+                    dependencyArtifact.getGroupId(), dependencyArtifact.getArtifactId());
+            return false;
+        }
+    }
+
+    /**
+     * @return metadata from session cache or null if metadata artifact does not exist
+     */
+    private Metadata getMetadata(final Artifact metadataArtifact, boolean localOnly) throws MojoExecutionException {
+        if (localOnly) {
+            return lookupMetadata(metadataArtifact, true);
+        }
+        // Routes differ between projects, so outcome is shared only by lookups in the same repositories
+        String cacheKey = metadataArtifact.getId() + '@' +
+                ExecutionStatistics.repositoryKey(repositoryRouter.route(metadataArtifact.getGroupId()));
+        try {
+            return resolutionCache.get(cacheKey, new Callable<Metadata>() {
+                @Override
+                public Metadata call() throws Exception {
+                    return lookupMetadata(metadataArtifact, false);
+                }
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while resolving metadata artifact " + metadataArtifact, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof MojoExecutionException) {
+                throw (MojoExecutionException) e.getCause();
+            }
+            throw new MojoExecutionException("Failed resolving metadata artifact " + metadataArtifact, e.getCause());
+        }
+    }
+
+    /**
+     * @param localOnly if true metadata artifact is looked up in the local repository only
+     * @return parsed metadata or null if metadata artifact does not exist
+     */
+    private Metadata lookupMetadata(Artifact metadataArtifact, boolean localOnly) throws MojoExecutionException {
+        for (MetadataIndex index : metadataIndexes) {
+            if (index.covers(metadataArtifact.getGroupId())) {
+                LOGGER.debug("Artifact {} looked up in metadata index", metadataArtifact);
+                Metadata metadata = index.entries.get(MetadataIndex.key(metadataArtifact.getGroupId(),
+                        metadataArtifact.getArtifactId(), metadataArtifact.getVersion()));
+                if (metadata != null) {
+                    statistics.recordHit("index", 0);
+                } else {
+                    statistics.recordMiss("index");
+                }
+                return metadata;
+            }
+        }
+        String key = MetadataIndex.key(metadataArtifact.getGroupId(), metadataArtifact.getArtifactId(),
+                metadataArtifact.getVersion());
+        if (serviceKeys != null && serviceKeys.contains(key)) {
+            Metadata metadata = serviceMetadata.get(key);
+            if (metadata != null) {
+                statistics.recordHit("service", 0);
+            } else {
+                statistics.recordMiss("service");
+            }
+            return metadata;
+        }
+        for (MetadataBloomFilter filter : metadataFilters) {
+            if (filter.covers(metadataArtifact.getGroupId()) && !filter.mightContain(key)) {
+                LOGGER.debug("Artifact {} NOT found (filter)", metadataArtifact);
+                statistics.recordMiss("filter");
+                return null;
+            }
+        }
+        List<ArtifactRepository> repositories = repositoryRouter.route(metadataArtifact.getGroupId());
+        // Outcomes are stored only for lookups in remote repositories and are kept apart per repositories
+        String storeKey = key + '@' + ExecutionStatistics.repositoryKey(repositories);
+        if (metadataStore != null && !repositories.isEmpty()) {
+            MappedMetadataStore.Entry entry = getStoredOutcome(storeKey);
+            // Stale outcome is still better than the local repository when lookup ran out of time
+            if (entry != null && (localOnly || !forceUpdate &&
+                    entry.isFresh(metadataStoreTtlMillis, System.currentTimeMillis()))) {
+                if (entry.getMetadata() == null) {
+                    LOGGER.debug("Artifact {} NOT found (store)", metadataArtifact);
+                    statistics.recordMiss("store");
+                    return null;
+                }
+                try {
+                    Metadata metadata = OBJECT_MAPPER.readValue(entry.getMetadata(), Metadata.class);
+                    statistics.recordHit("store", 0);
+                    return metadata;
+                } catch (IOException e) {
+                    LOGGER.debug("Ignoring unreadable stored metadata of {}: {}", metadataArtifact, e.getMessage());
+                }
+            }
+        }
+        if (localOnly) {
+            return readLocalMetadata(metadataArtifact);
+        }
+
+        // Absence in the local repository only is not cached, metadata may be synchronized or installed any time
+        NegativeLookupCache missingCache = repositories.isEmpty() ? null : negativeLookupCache;
+        if (missingCache != null && !forceUpdate && missingCache.isMissing(metadataArtifact, repositories)) {
+            LOGGER.debug("Artifact {} NOT found (cached)", metadataArtifact);
+            statistics.recordMiss("negative-cache");
+            return null;
+        }
+
+        String repositoryKey = ExecutionStatistics.repositoryKey(repositories);
+        long localLastModified = artifactResolver.getLocalFile(metadataArtifact).lastModified();
+        long start = System.nanoTime();
+        try {
+            artifactResolver.resolve(metadataArtifact, repositories);
+            LOGGER.debug("Artifact {} found", metadataArtifact);
+        } catch (ArtifactResolutionException e) {
+            statistics.recordError(repositoryKey);
+            throw new MojoExecutionException("Failed resolving metadata artifact " + metadataArtifact, e);
+        } catch (ArtifactNotFoundException e) {
+            LOGGER.debug("Artifact {} NOT found", metadataArtifact);
+            statistics.recordMiss(repositoryKey);
+            if (missingCache != null) {
+                missingCache.markMissing(metadataArtifact, repositories);
+            }
+            storeOutcome(storeKey, null, repositories);
+            return null;
+        } finally {
+            statistics.recordTiming(metadataArtifact.getId(), ExecutionStatistics.RESOLVE, System.nanoTime() - start);
+        }
+        if (missingCache != null) {
+            missingCache.markPresent(metadataArtifact, repositories);
+        }
+
+        File file = metadataArtifact.getFile();
+        if (metadataStore != null && !repositories.isEmpty()) {
+            try {
+                storeOutcome(storeKey, Files.readAllBytes(file.toPath()), repositories);
+            } catch (IOException e) {
+                throw new MojoExecutionException("Failed reading metadata file " + file, e);
+            }
+        }
+        if (file.lastModified() != localLastModified) {
+            statistics.recordTiming(metadataArtifact.getId(), ExecutionStatistics.DOWNLOAD,
+                    System.nanoTime() - start);
+            statistics.recordHit(metadataArtifact.getRepository() != null ?
+                    metadataArtifact.getRepository().getId() : repositoryKey, file.length());
+        } else {
+            statistics.recordHit("local", 0);
+        }
+
+        start = System.nanoTime();
+        try {
+            return parseMetadataJson(file);
+        } finally {
+            statistics.recordTiming(metadataArtifact.getId(), ExecutionStatistics.PARSE, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Reads metadata artifact from its path in the local repository, neither remote repositories nor the local
+     * repository manager are consulted
+     *
+     * @return parsed metadata or null if metadata artifact is not in the local repository
+     */
+    private Metadata readLocalMetadata(Artifact metadataArtifact) throws MojoExecutionException {
+        File file = artifactResolver.getLocalFile(metadataArtifact);
+        if (!file.isFile()) {
+            LOGGER.debug("Artifact {} NOT found (local)", metadataArtifact);
+            statistics.recordMiss("local");
+            return null;
+        }
+        statistics.recordHit("local", 0);
+        long start = System.nanoTime();
+        try {
+            return parseMetadataJson(file);
+        } finally {
+            statistics.recordTiming(metadataArtifact.getId(), ExecutionStatistics.PARSE, System.nanoTime() - start);
+        }
+    }
+
+    private MappedMetadataStore.Entry getStoredOutcome(String key) {
+        try {
+            return metadataStore.get(key);
+        } catch (IOException e) {
+            LOGGER.debug("Failed reading local metadata store entry {}: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @param metadata     metadata file content or null if metadata artifact does not exist
+     * @param repositories repositories queried for the metadata artifact, outcome of a lookup in the local
+     *                     repository only is not stored
+     */
+    private void storeOutcome(String key, byte[] metadata, List<ArtifactRepository> repositories) {
+        if (metadataStore == null || repositories.isEmpty()) {
+            return;
+        }
+        try {
+            metadataStore.put(key, metadata, System.currentTimeMillis());
+        } catch (IOException e) {
+            LOGGER.debug("Failed writing local metadata store entry {}: {}", key, e.getMessage());
+        }
+    }
+
+    private Metadata parseMetadataJson(File file) throws MojoExecutionException {
+        ParsedMetadataCache parsedMetadata = ParsedMetadataCache.getInstance();
+        long length = file.length();
+        long lastModified = file.lastModified();
+        Metadata metadata = parsedMetadata.get(file, length, lastModified);
+        if (metadata != null) {
+            return metadata;
+        }
+        try {
+            metadata = OBJECT_MAPPER.readValue(file, Metadata.class);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed parsing metadata file " + file, e);
+        }
+        parsedMetadata.put(file, length, lastModified, metadata);
+        return metadata;
+    }
+}
@@ -0,0 +1,90 @@
+package com.unibet.maven;
+
+/*
+ * Copyright 2014 North Development AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.unibet.maven.domain.Metadata;
+import com.unibet.maven.domain.MetadataQuery;
+import org.codehaus.jackson.map.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * <p>Client of a metadata service answering metadata of many artifact versions in a single request. The whole
+ * {@link MetadataQuery} with requested keys is posted as JSON and the same document with metadata entries of the
+ * existing keys is expected back.</p>
+ */
+public class MetadataServiceClient {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final URL url;
+    private final int timeout;
+
+    /**
+     * @param url     metadata service endpoint
+     * @param timeout connect and read timeout in milliseconds
+     */
+    public MetadataServiceClient(URL url, int timeout) {
+        this.url = url;
+        this.timeout = timeout;
+    }
+
+    /**
+     * @param keys <code>groupId:artifactId:version</code> keys to be queried
+     * @return metadata keyed by the requested keys having metadata
+     * @throws IOException if metadata service is not available or answers with an error
+     */
+    public Map<String, Metadata> query(Collection<String> keys) throws IOException {
+        MetadataQuery query = new MetadataQuery();
+        query.keys = new ArrayList<>(keys);
+
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try {
+            connection.setConnectTimeout(timeout);
+            connection.setReadTimeout(timeout);
+            connection.setRequestMethod("POST");
+            connection.setRequestProperty("Content-Type", "application/json");
+            connection.setRequestProperty("Accept", "application/json");
+            connection.setDoOutput(true);
+            try (OutputStream out = connection.getOutputStream()) {
+                OBJECT_MAPPER.writeValue(out, query);
+            }
+
+            int status = connection.getResponseCode();
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Metadata service " + url + " responded with " + status + " " +
+                        connection.getResponseMessage());
+            }
+            MetadataQuery result;
+            try (InputStream in = connection.getInputStream()) {
+                result = OBJECT_MAPPER.readValue(in, MetadataQuery.class);
+            }
+            if (result.entries == null) {
+                throw new IOException("Metadata service " + url + " responded without entries");
+            }
+            return result.entries;
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.unibet.maven;
+
+/*
+ * Copyright 2014 North Development AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.project.MavenProject;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+
+/**
+ * <p>Background verifications started by {@link DependencyMetadataVerifyStartMojo} and awaited by
+ * {@link DependencyMetadataVerifyAwaitMojo}, kept per {@link MavenSession} and project.</p>
+ */
+public final class PendingVerifications {
+    private static final Map<MavenSession, Map<String, Future<List<MetadataFinding>>>> VERIFICATIONS =
+            Collections.synchronizedMap(new WeakHashMap<MavenSession, Map<String, Future<List<MetadataFinding>>>>());
+
+    private PendingVerifications() {
+    }
+
+    /**
+     * Registers background verification of the project
+     *
+     * @return previously registered verification of the same project or null
+     */
+    public static Future<List<MetadataFinding>> put(MavenSession session, MavenProject project,
+                                                    Future<List<MetadataFinding>> verification) {
+        return forSession(session).put(project.getId(), verification);
+    }
+
+    /**
+     * Removes background verification of the project
+     *
+     * @return registered verification or null if none was started
+     */
+    public static Future<List<MetadataFinding>> remove(MavenSession session, MavenProject project) {
+        return forSession(session).remove(project.getId());
+    }
+
+    private static Map<String, Future<List<MetadataFinding>>> forSession(MavenSession session) {
+        synchronized (VERIFICATIONS) {
+            Map<String, Future<List<MetadataFinding>>> verifications = VERIFICATIONS.get(session);
+            if (verifications == null) {
+                verifications = new ConcurrentHashMap<>();
+                VERIFICATIONS.put(session, verifications);
+            }
+            return verifications;
+        }
+    }
+}
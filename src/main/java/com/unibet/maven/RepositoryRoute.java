@@ -0,0 +1,51 @@
+package com.unibet.maven;
+
+/*
+ * Copyright 2014 North Development AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.List;
+
+/**
+ * <p>Routing rule restricting metadata lookups of a group id prefix to the given remote repositories</p>
+ */
+public class RepositoryRoute {
+    /**
+     * Group id prefix, matched on group id segment boundaries, e.g. <code>com.unibet</code> matches
+     * <code>com.unibet</code> and <code>com.unibet.maven</code>
+     */
+    private String groupIdPrefix;
+
+    /**
+     * Ids of remote repositories allowed to host metadata of matching group ids
+     */
+    private List<String> repositories;
+
+    public String getGroupIdPrefix() {
+        return groupIdPrefix;
+    }
+
+    public void setGroupIdPrefix(String groupIdPrefix) {
+        this.groupIdPrefix = groupIdPrefix;
+    }
+
+    public List<String> getRepositories() {
+        return repositories;
+    }
+
+    public void setRepositories(List<String> repositories) {
+        this.repositories = repositories;
+    }
+}
@@ -0,0 +1,119 @@
+package com.unibet.maven;
+
+/*
+ * Copyright 2014 North Development AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>Selects remote repositories metadata of a group id may be looked up in. The route with the longest matching
+ * group id prefix wins. Without any routes all remote repositories are used, otherwise group ids not matching any
+ * route are looked up in the local repository only. Routed repository ids match remote repositories directly or
+ * through the mirror the remote repositories are replaced by.</p>
+ */
+public class RepositoryRouter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RepositoryRouter.class);
+
+    private final List<RepositoryRoute> routes;
+    private final List<ArtifactRepository> remoteRepositories;
+    private final ConcurrentMap<String, List<ArtifactRepository>> routed = new ConcurrentHashMap<>();
+
+    /**
+     * @throws MojoExecutionException if a route misses its group id prefix or repositories
+     */
+    public RepositoryRouter(List<RepositoryRoute> routes, List<ArtifactRepository> remoteRepositories)
+            throws MojoExecutionException {
+        this.routes = routes != null ? routes : Collections.<RepositoryRoute>emptyList();
+        this.remoteRepositories = remoteRepositories;
+        for (RepositoryRoute route : this.routes) {
+            if (route.getGroupIdPrefix() == null || route.getGroupIdPrefix().trim().isEmpty()) {
+                throw new MojoExecutionException("Repository route without groupIdPrefix: " + route.getRepositories());
+            }
+            if (route.getRepositories() == null) {
+                throw new MojoExecutionException("Repository route of group " + route.getGroupIdPrefix() +
+                        " without repositories");
+            }
+            for (String repositoryId : route.getRepositories()) {
+                if (findRepository(repositoryId) == null) {
+                    LOGGER.warn("Repository {} routed for group {} is not a project remote repository", repositoryId,
+                            route.getGroupIdPrefix());
+                }
+            }
+        }
+    }
+
+    /**
+     * @return remote repositories allowed to host metadata of the given group id
+     */
+    public List<ArtifactRepository> route(String groupId) {
+        if (routes.isEmpty()) {
+            return remoteRepositories;
+        }
+        List<ArtifactRepository> repositories = routed.get(groupId);
+        if (repositories == null) {
+            repositories = selectRepositories(groupId);
+            routed.putIfAbsent(groupId, repositories);
+            LOGGER.debug("Group {} routed to {}", groupId, repositories);
+        }
+        return repositories;
+    }
+
+    private List<ArtifactRepository> selectRepositories(String groupId) {
+        RepositoryRoute selected = null;
+        for (RepositoryRoute route : routes) {
+            String prefix = route.getGroupIdPrefix();
+            boolean matches = groupId.equals(prefix) || groupId.startsWith(prefix + ".");
+            if (matches && (selected == null || prefix.length() > selected.getGroupIdPrefix().length())) {
+                selected = route;
+            }
+        }
+        if (selected == null) {
+            return Collections.emptyList();
+        }
+        List<ArtifactRepository> repositories = new ArrayList<>(selected.getRepositories().size());
+        for (String repositoryId : selected.getRepositories()) {
+            ArtifactRepository repository = findRepository(repositoryId);
+            // Ids of a mirror and the repositories it mirrors select the same repository
+            if (repository != null && !repositories.contains(repository)) {
+                repositories.add(repository);
+            }
+        }
+        return Collections.unmodifiableList(repositories);
+    }
+
+    private ArtifactRepository findRepository(String repositoryId) {
+        for (ArtifactRepository repository : remoteRepositories) {
+            if (repository.getId().equals(repositoryId)) {
+                return repository;
+            }
+            for (ArtifactRepository mirroredRepository : repository.getMirroredRepositories()) {
+                if (mirroredRepository.getId().equals(repositoryId)) {
+                    return repository;
+                }
+            }
+        }
+        return null;
+    }
+}
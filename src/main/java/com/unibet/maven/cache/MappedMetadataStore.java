@@ -0,0 +1,379 @@
+package com.unibet.maven.cache;
+
+/*
+ * Copyright 2014 North Development AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>Persistent store of metadata lookup outcomes, both present and absent, kept in a single memory mapped file, so
+ * a lookup is answered by reading the mapping instead of probing the local repository.</p>
+ * <p>The file consists of a header, an open addressing slot table of key hashes and record offsets, and an append
+ * only record region. Updated outcomes are appended and the slot is pointed to the new record. Writers of
+ * concurrent builds are serialized by a file lock. When the slot table fills up or superseded records pile up, live
+ * records are compacted into a new file, which atomically replaces the old one, and the old file is marked
+ * obsolete so other processes reopen it.</p>
+ */
+public class MappedMetadataStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MappedMetadataStore.class);
+    private static final Map<File, MappedMetadataStore> STORES = new HashMap<>();
+
+    private static final int MAGIC = 0x444d4d53;
+    private static final int FORMAT_VERSION = 1;
+    private static final int DEFAULT_SLOTS = 1 << 16;
+    private static final int INITIAL_DATA_BYTES = 1 << 20;
+    private static final int MAX_DATA_BYTES_PER_SLOT = 256;
+
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int SLOTS_OFFSET = 8;
+    private static final int OBSOLETE_OFFSET = 12;
+    private static final int DATA_END_OFFSET = 16;
+    private static final int ENTRIES_OFFSET = 24;
+    private static final int HEADER_BYTES = 32;
+    private static final int SLOT_BYTES = 16;
+    private static final int ABSENT = -1;
+
+    private final File file;
+    private RandomAccessFile access;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int slots;
+
+    /**
+     * Lookup outcome
+     */
+    public static class Entry {
+        private final long timestamp;
+        private final byte[] metadata;
+
+        Entry(long timestamp, byte[] metadata) {
+            this.timestamp = timestamp;
+            this.metadata = metadata;
+        }
+
+        /**
+         * @return time the outcome was stored at
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        /**
+         * @return metadata file content or null if metadata does not exist
+         */
+        public byte[] getMetadata() {
+            return metadata;
+        }
+
+        /**
+         * @return true if the outcome was stored no longer than the given time before now
+         */
+        public boolean isFresh(long ttlMillis, long now) {
+            return now - timestamp <= ttlMillis;
+        }
+    }
+
+    private MappedMetadataStore(File file) {
+        this.file = file;
+    }
+
+    /**
+     * @param slots slot table size used if the store file is created
+     * @return store of the given file not shared with other users of the file in this JVM
+     */
+    static MappedMetadataStore open(File file, int slots) throws IOException {
+        MappedMetadataStore store = new MappedMetadataStore(file.getAbsoluteFile());
+        store.open(slots);
+        return store;
+    }
+
+    /**
+     * @return JVM wide store of the given file, created if it does not exist
+     * @throws IOException if store file can not be opened or is not a store file
+     */
+    public static MappedMetadataStore forFile(File file) throws IOException {
+        File key = file.getAbsoluteFile();
+        synchronized (STORES) {
+            MappedMetadataStore store = STORES.get(key);
+            if (store == null) {
+                store = open(key, DEFAULT_SLOTS);
+                STORES.put(key, store);
+            }
+            return store;
+        }
+    }
+
+    /**
+     * @return stored outcome or null if key is unknown
+     */
+    public synchronized Entry get(String key) throws IOException {
+        if (buffer.getInt(OBSOLETE_OFFSET) != 0) {
+            reopen();
+        }
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        long hash = hash(keyBytes);
+        int slot = findSlot(hash, keyBytes);
+        if (slot < 0) {
+            return null;
+        }
+        long offset = buffer.getLong(slotPosition(slot) + 8);
+        int position = (int) offset + 4 + keyBytes.length;
+        long timestamp = buffer.getLong(position);
+        int metadataLength = buffer.getInt(position + 8);
+        if (metadataLength == ABSENT) {
+            return new Entry(timestamp, null);
+        }
+        if (position + 12L + metadataLength > buffer.capacity()) {
+            map();
+        }
+        byte[] metadata = new byte[metadataLength];
+        readBytes(position + 12, metadata);
+        return new Entry(timestamp, metadata);
+    }
+
+    /**
+     * Stores lookup outcome, replacing previous outcome of the same key
+     *
+     * @param metadata metadata file content or null if metadata does not exist
+     */
+    public synchronized void put(String key, byte[] metadata, long timestamp) throws IOException {
+        while (true) {
+            boolean obsolete;
+            FileLock lock = channel.lock();
+            try {
+                obsolete = buffer.getInt(OBSOLETE_OFFSET) != 0;
+                if (!obsolete) {
+                    append(key.getBytes(StandardCharsets.UTF_8), metadata, timestamp);
+                    int entries = buffer.getInt(ENTRIES_OFFSET);
+                    long dataBytes = buffer.getLong(DATA_END_OFFSET) - HEADER_BYTES - (long) slots * SLOT_BYTES;
+                    if (entries > slots / 4 * 3) {
+                        compact(slots * 2);
+                    } else if (dataBytes > (long) slots * MAX_DATA_BYTES_PER_SLOT) {
+                        // Mostly superseded records
+                        compact(entries > slots / 2 ? slots * 2 : slots);
+                    }
+                }
+            } finally {
+                lock.release();
+            }
+            if (!obsolete) {
+                return;
+            }
+            reopen();
+        }
+    }
+
+    private void open(int initialSlots) throws IOException {
+        file.getParentFile().mkdirs();
+        access = new RandomAccessFile(file, "rw");
+        channel = access.getChannel();
+        try (FileLock ignored = channel.lock()) {
+            if (channel.size() == 0) {
+                initialize(access, initialSlots);
+            }
+            map();
+        } catch (IOException e) {
+            access.close();
+            throw e;
+        }
+        if (buffer.getInt(MAGIC_OFFSET) != MAGIC || buffer.getInt(VERSION_OFFSET) != FORMAT_VERSION) {
+            access.close();
+            throw new IOException("Not a metadata store file of version " + FORMAT_VERSION + ": " + file);
+        }
+        LOGGER.debug("Opened metadata store {} with {} of {} slots used", file, buffer.getInt(ENTRIES_OFFSET),
+                slots);
+    }
+
+    private void reopen() throws IOException {
+        LOGGER.debug("Metadata store {} was compacted by another process. Reopening...", file);
+        access.close();
+        open(DEFAULT_SLOTS);
+    }
+
+    private void map() throws IOException {
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Metadata store file " + file + " is too large");
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        slots = buffer.getInt(SLOTS_OFFSET);
+    }
+
+    private static void initialize(RandomAccessFile access, int slots) throws IOException {
+        long dataStart = HEADER_BYTES + (long) slots * SLOT_BYTES;
+        access.setLength(dataStart + INITIAL_DATA_BYTES);
+        access.seek(0);
+        access.writeInt(MAGIC);
+        access.writeInt(FORMAT_VERSION);
+        access.writeInt(slots);
+        access.writeInt(0);
+        access.writeLong(dataStart);
+        access.writeInt(0);
+    }
+
+    /**
+     * Appends record and points the slot of the key to it. Must be called holding the file lock.
+     */
+    private void append(byte[] key, byte[] metadata, long timestamp) throws IOException {
+        long dataEnd = buffer.getLong(DATA_END_OFFSET);
+        int size = 4 + key.length + 8 + 4 + (metadata == null ? 0 : metadata.length);
+        if (dataEnd + size > buffer.capacity()) {
+            // Another process may have grown the file already
+            map();
+            if (dataEnd + size > buffer.capacity()) {
+                access.setLength(Math.max(dataEnd + size, buffer.capacity() * 2L));
+                map();
+            }
+        }
+
+        int position = (int) dataEnd;
+        buffer.putInt(position, key.length);
+        writeBytes(position + 4, key);
+        position += 4 + key.length;
+        buffer.putLong(position, timestamp);
+        buffer.putInt(position + 8, metadata == null ? ABSENT : metadata.length);
+        if (metadata != null) {
+            writeBytes(position + 12, metadata);
+        }
+        buffer.putLong(DATA_END_OFFSET, dataEnd + size);
+
+        long hash = hash(key);
+        int slot = findSlot(hash, key);
+        if (slot >= 0) {
+            buffer.putLong(slotPosition(slot) + 8, dataEnd);
+            return;
+        }
+        slot = (int) ((hash & Long.MAX_VALUE) % slots);
+        while (buffer.getLong(slotPosition(slot)) != 0) {
+            slot = (slot + 1) % slots;
+        }
+        // Offset is written before hash, so readers never follow an empty offset
+        buffer.putLong(slotPosition(slot) + 8, dataEnd);
+        buffer.putLong(slotPosition(slot), hash);
+        buffer.putInt(ENTRIES_OFFSET, buffer.getInt(ENTRIES_OFFSET) + 1);
+    }
+
+    /**
+     * Rewrites live records into a new file with the given slot table size. Must be called holding the file lock.
+     */
+    private void compact(int compactedSlots) throws IOException {
+        File compacted = new File(file.getParentFile(), file.getName() + ".compact");
+        try (RandomAccessFile compactedAccess = new RandomAccessFile(compacted, "rw")) {
+            compactedAccess.setLength(0);
+            initialize(compactedAccess, compactedSlots);
+            MappedMetadataStore target = new MappedMetadataStore(compacted);
+            target.access = compactedAccess;
+            target.channel = compactedAccess.getChannel();
+            target.map();
+            for (int slot = 0; slot < slots; slot++) {
+                if (buffer.getLong(slotPosition(slot)) == 0) {
+                    continue;
+                }
+                int offset = (int) buffer.getLong(slotPosition(slot) + 8);
+                byte[] key = new byte[buffer.getInt(offset)];
+                readBytes(offset + 4, key);
+                int position = offset + 4 + key.length;
+                int metadataLength = buffer.getInt(position + 8);
+                byte[] metadata = null;
+                if (metadataLength != ABSENT) {
+                    metadata = new byte[metadataLength];
+                    readBytes(position + 12, metadata);
+                }
+                target.append(key, metadata, buffer.getLong(position));
+            }
+            target.buffer.force();
+        }
+        Files.move(compacted.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        buffer.putInt(OBSOLETE_OFFSET, 1);
+        LOGGER.debug("Compacted metadata store {} to {} slots", file, compactedSlots);
+    }
+
+    /**
+     * @return slot holding the key or -1 if key is not stored
+     */
+    private int findSlot(long hash, byte[] key) throws IOException {
+        int slot = (int) ((hash & Long.MAX_VALUE) % slots);
+        for (int probes = 0; probes < slots; probes++) {
+            long slotHash = buffer.getLong(slotPosition(slot));
+            if (slotHash == 0) {
+                return -1;
+            }
+            if (slotHash == hash && keyEquals(buffer.getLong(slotPosition(slot) + 8), key)) {
+                return slot;
+            }
+            slot = (slot + 1) % slots;
+        }
+        return -1;
+    }
+
+    private boolean keyEquals(long offset, byte[] key) throws IOException {
+        if (offset + 4 + key.length + 12 > buffer.capacity()) {
+            // Record appended by another process beyond current mapping
+            map();
+        }
+        if (buffer.getInt((int) offset) != key.length) {
+            return false;
+        }
+        byte[] storedKey = new byte[key.length];
+        readBytes((int) offset + 4, storedKey);
+        return Arrays.equals(storedKey, key);
+    }
+
+    private int slotPosition(int slot) {
+        return HEADER_BYTES + slot * SLOT_BYTES;
+    }
+
+    private void readBytes(int position, byte[] bytes) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(position);
+        view.get(bytes);
+    }
+
+    private void writeBytes(int position, byte[] bytes) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(position);
+        view.put(bytes);
+    }
+
+    /**
+     * @return non zero 64 bit FNV-1a hash, zero marks an empty slot
+     */
+    private static long hash(byte[] key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash == 0 ? 1 : hash;
+    }
+}
@@ -0,0 +1,208 @@
+package com.unibet.maven.cache;
+
+/*
+ * Copyright 2014 North Development AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.ArtifactUtils;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>Persistent cache of metadata artifacts known to be missing in a set of remote repositories.</p>
+ * <p>Entries are stored as <code>groupId:artifactId:version@repositoryIds</code> keys with the time of the last
+ * remote miss. The cache file is merged with concurrent writers when saved. Writers of the same JVM, such as
+ * projects of a parallel build, are serialized by a JVM wide lock per file, and only the holder of that lock takes
+ * the file lock, which serializes writers of concurrent builds.</p>
+ */
+public class NegativeLookupCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(NegativeLookupCache.class);
+    private static final Long REMOVED = -1L;
+    private static final Map<File, Object> LOCKS = new HashMap<>();
+
+    private final File file;
+    private final long ttlMillis;
+    private final boolean releasesPermanent;
+    private final ConcurrentMap<String, Long> entries = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Long> changes = new ConcurrentHashMap<>();
+
+    /**
+     * @param file              cache file, does not have to exist
+     * @param ttlMillis         time a miss is trusted for
+     * @param releasesPermanent if true misses of release versions never expire
+     */
+    public NegativeLookupCache(File file, long ttlMillis, boolean releasesPermanent) {
+        this.file = file;
+        this.ttlMillis = ttlMillis;
+        this.releasesPermanent = releasesPermanent;
+    }
+
+    /**
+     * Loads cache entries from the cache file if it exists
+     *
+     * @throws IOException if cache file can not be read
+     */
+    public void load() throws IOException {
+        if (file.isFile()) {
+            entries.putAll(read());
+            LOGGER.debug("Loaded {} negative lookup cache entries from {}", entries.size(), file);
+        }
+    }
+
+    /**
+     * @return true if artifact is known to be missing in the given repositories and the entry has not expired
+     */
+    public boolean isMissing(Artifact artifact, List<ArtifactRepository> repositories) {
+        Long timestamp = entries.get(key(artifact, repositories));
+        return timestamp != null && !REMOVED.equals(timestamp) && !isExpired(artifact.getVersion(), timestamp);
+    }
+
+    public void markMissing(Artifact artifact, List<ArtifactRepository> repositories) {
+        String key = key(artifact, repositories);
+        Long timestamp = System.currentTimeMillis();
+        entries.put(key, timestamp);
+        changes.put(key, timestamp);
+    }
+
+    public void markPresent(Artifact artifact, List<ArtifactRepository> repositories) {
+        String key = key(artifact, repositories);
+        if (entries.remove(key) != null) {
+            changes.put(key, REMOVED);
+        }
+    }
+
+    /**
+     * Merges changes made since loading into the cache file. Expired entries are dropped.
+     *
+     * @throws IOException if cache file can not be written
+     */
+    public void save() throws IOException {
+        if (changes.isEmpty()) {
+            return;
+        }
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Failed creating negative lookup cache directory " + directory);
+        }
+
+        File lockFile = new File(directory, file.getName() + ".lock");
+        synchronized (lockFor(file)) {
+            try (RandomAccessFile lockAccess = new RandomAccessFile(lockFile, "rw");
+                 FileLock ignored = lockAccess.getChannel().lock()) {
+                merge(directory);
+            }
+        }
+    }
+
+    private void merge(File directory) throws IOException {
+        Properties properties = new Properties();
+        for (Map.Entry<String, Long> entry : read().entrySet()) {
+            properties.setProperty(entry.getKey(), entry.getValue().toString());
+        }
+        for (Map.Entry<String, Long> change : changes.entrySet()) {
+            if (REMOVED.equals(change.getValue())) {
+                properties.remove(change.getKey());
+            } else {
+                properties.setProperty(change.getKey(), change.getValue().toString());
+            }
+        }
+        for (String key : properties.stringPropertyNames()) {
+            int separator = key.indexOf('@');
+            String version = key.substring(key.lastIndexOf(':', separator) + 1, separator);
+            if (isExpired(version, Long.parseLong(properties.getProperty(key)))) {
+                properties.remove(key);
+            }
+        }
+
+        File temporaryFile = new File(directory, file.getName() + ".tmp");
+        try (OutputStream out = new FileOutputStream(temporaryFile)) {
+            properties.store(out, "Dependency metadata negative lookup cache");
+        }
+        Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        changes.clear();
+        LOGGER.debug("Saved {} negative lookup cache entries to {}", properties.size(), file);
+    }
+
+    private static Object lockFor(File file) {
+        File key = file.getAbsoluteFile();
+        synchronized (LOCKS) {
+            Object lock = LOCKS.get(key);
+            if (lock == null) {
+                lock = new Object();
+                LOCKS.put(key, lock);
+            }
+            return lock;
+        }
+    }
+
+    private Map<String, Long> read() throws IOException {
+        Map<String, Long> result = new HashMap<>();
+        if (!file.isFile()) {
+            return result;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            properties.load(in);
+        }
+        for (String key : properties.stringPropertyNames()) {
+            try {
+                result.put(key, Long.valueOf(properties.getProperty(key)));
+            } catch (NumberFormatException e) {
+                LOGGER.debug("Ignoring malformed negative lookup cache entry {}", key);
+            }
+        }
+        return result;
+    }
+
+    private boolean isExpired(String version, long timestamp) {
+        // Timestamped snapshot versions do not end with SNAPSHOT
+        if (releasesPermanent && !ArtifactUtils.isSnapshot(version)) {
+            return false;
+        }
+        return System.currentTimeMillis() - timestamp > ttlMillis;
+    }
+
+    private static String key(Artifact artifact, List<ArtifactRepository> repositories) {
+        StringBuilder key = new StringBuilder(artifact.getGroupId()).append(':').append(artifact.getArtifactId())
+                .append(':').append(artifact.getVersion()).append('@');
+        for (int i = 0; i < repositories.size(); i++) {
+            if (i > 0) {
+                key.append(',');
+            }
+            key.append(repositories.get(i).getId());
+        }
+        return key.toString();
+    }
+}
@@ -0,0 +1,131 @@
+package com.unibet.maven.cache;
+
+/*
+ * Copyright 2014 North Development AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.unibet.maven.domain.Metadata;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>JVM wide least recently used cache of parsed metadata files. It outlives single builds when plugin classes stay
+ * loaded, e.g. in a persistent build daemon.</p>
+ * <p>Entries are keyed by absolute file path, size and modification time, so a changed file is parsed again. The
+ * cache is bounded by an estimate of retained memory.</p>
+ */
+public class ParsedMetadataCache {
+    public static final long DEFAULT_MAX_BYTES = 16 * 1024 * 1024;
+
+    private static final ParsedMetadataCache INSTANCE = new ParsedMetadataCache(DEFAULT_MAX_BYTES);
+    private static final int ENTRY_OVERHEAD_BYTES = 160;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long maxBytes;
+    private long usedBytes;
+    private long hits;
+    private long misses;
+
+    ParsedMetadataCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public static ParsedMetadataCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Changes memory cap, evicting least recently used entries if needed
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        evict();
+    }
+
+    /**
+     * @param file         metadata file
+     * @param length       current file size
+     * @param lastModified current file modification time
+     * @return cached metadata or null if file has not been parsed yet or has changed since
+     */
+    public synchronized Metadata get(File file, long length, long lastModified) {
+        Entry entry = entries.get(file.getAbsolutePath());
+        if (entry != null && entry.length == length && entry.lastModified == lastModified) {
+            hits++;
+            return entry.metadata;
+        }
+        misses++;
+        return null;
+    }
+
+    public synchronized void put(File file, long length, long lastModified, Metadata metadata) {
+        String path = file.getAbsolutePath();
+        Entry entry = new Entry(length, lastModified, metadata, estimateBytes(path, metadata));
+        Entry previous = entries.put(path, entry);
+        if (previous != null) {
+            usedBytes -= previous.bytes;
+        }
+        usedBytes += entry.bytes;
+        evict();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (usedBytes > maxBytes && iterator.hasNext()) {
+            usedBytes -= iterator.next().getValue().bytes;
+            iterator.remove();
+        }
+    }
+
+    private static long estimateBytes(String path, Metadata metadata) {
+        long bytes = ENTRY_OVERHEAD_BYTES + 2L * path.length();
+        if (metadata.message != null) {
+            bytes += 2L * metadata.message.length();
+        }
+        if (metadata.versionRange != null) {
+            bytes += 2L * metadata.versionRange.length();
+        }
+        return bytes;
+    }
+
+    private static class Entry {
+        private final long length;
+        private final long lastModified;
+        private final Metadata metadata;
+        private final long bytes;
+
+        Entry(long length, long lastModified, Metadata metadata, long bytes) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.metadata = metadata;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.unibet.maven.cache;
+
+/*
+ * Copyright 2014 North Development AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.unibet.maven.domain.Metadata;
+import org.apache.maven.execution.MavenSession;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>In-memory metadata resolution cache shared by all mojo executions of a single {@link MavenSession}.</p>
+ * <p>Each key is loaded exactly once, even when several reactor modules request it concurrently. Failed loads are
+ * not cached, so concurrent waiters retry the load themselves.</p>
+ */
+public class SessionResolutionCache {
+    private static final Map<MavenSession, SessionResolutionCache> CACHES =
+            Collections.synchronizedMap(new WeakHashMap<MavenSession, SessionResolutionCache>());
+
+    private final ConcurrentMap<String, Future<Metadata>> outcomes = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong replays = new AtomicLong();
+
+    /**
+     * @return cache bound to the given session
+     */
+    public static SessionResolutionCache forSession(MavenSession session) {
+        synchronized (CACHES) {
+            SessionResolutionCache cache = CACHES.get(session);
+            if (cache == null) {
+                cache = new SessionResolutionCache();
+                CACHES.put(session, cache);
+            }
+            return cache;
+        }
+    }
+
+    /**
+     * Detaches cache from the given session once the session has ended
+     *
+     * @return cache bound to the given session or null if no mojo execution used it
+     */
+    public static SessionResolutionCache remove(MavenSession session) {
+        return CACHES.remove(session);
+    }
+
+    /**
+     * Returns cached resolution outcome or loads it.
+     *
+     * @param key    metadata artifact coordinates and repositories it is looked up in
+     * @param loader resolves metadata, returns null if there is none
+     * @return metadata or null if dependency has no metadata
+     * @throws ExecutionException   if loader failed
+     * @throws InterruptedException if interrupted while waiting for concurrent load of the same key
+     */
+    public Metadata get(String key, Callable<Metadata> loader) throws ExecutionException, InterruptedException {
+        while (true) {
+            boolean owner = false;
+            Future<Metadata> future = outcomes.get(key);
+            if (future == null) {
+                FutureTask<Metadata> task = new FutureTask<>(loader);
+                future = outcomes.putIfAbsent(key, task);
+                if (future == null) {
+                    future = task;
+                    owner = true;
+                    misses.incrementAndGet();
+                    task.run();
+                }
+            }
+
+            try {
+                Metadata metadata = future.get();
+                if (!owner) {
+                    hits.incrementAndGet();
+                }
+                return metadata;
+            } catch (ExecutionException e) {
+                outcomes.remove(key, future);
+                // Load may have failed because its owner was cancelled, so waiters retry on their own
+                if (owner) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Records verification answered by replaying outcome of the previous verification without any lookup
+     */
+    public void recordReplay() {
+        replays.incrementAndGet();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getReplays() {
+        return replays.get();
+    }
+}
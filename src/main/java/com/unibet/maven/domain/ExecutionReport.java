@@ -0,0 +1,61 @@
+package com.unibet.maven.domain;
+
+import org.codehaus.jackson.annotate.JsonProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class ExecutionReport {
+    @JsonProperty
+    public String goal;
+
+    @JsonProperty
+    public long durationMillis;
+
+    @JsonProperty
+    public Map<String, Phase> phases = new TreeMap<>();
+
+    @JsonProperty
+    public Map<String, Repository> repositories = new TreeMap<>();
+
+    @JsonProperty
+    public List<ArtifactTiming> artifacts = new ArrayList<>();
+
+    public static class Phase {
+        @JsonProperty
+        public long count;
+
+        @JsonProperty
+        public long totalMillis;
+
+        @JsonProperty
+        public long maxMillis;
+    }
+
+    public static class Repository {
+        @JsonProperty
+        public long hits;
+
+        @JsonProperty
+        public long misses;
+
+        @JsonProperty
+        public long errors;
+
+        @JsonProperty
+        public long bytes;
+    }
+
+    public static class ArtifactTiming {
+        @JsonProperty
+        public String artifact;
+
+        @JsonProperty
+        public String phase;
+
+        @JsonProperty
+        public long millis;
+    }
+}
@@ -1,6 +1,7 @@
 package com.unibet.maven.domain;
 
 import org.codehaus.jackson.annotate.JsonProperty;
+import org.codehaus.jackson.map.annotate.JsonSerialize;
 
 public class Metadata {
     @JsonProperty
@@ -11,4 +12,11 @@ public class Metadata {
 
     @JsonProperty
     public boolean fail;
+
+    /**
+     * Version range selector, e.g. <code>[,2.3.0)</code>, of version range rules metadata
+     */
+    @JsonProperty
+    @JsonSerialize(include = JsonSerialize.Inclusion.NON_NULL)
+    public String versionRange;
 }
@@ -0,0 +1,32 @@
+package com.unibet.maven.domain;
+
+import org.codehaus.jackson.annotate.JsonProperty;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+public class MetadataIndex {
+    @JsonProperty
+    public int formatVersion;
+
+    /**
+     * Group id prefix covered by this index, empty if index covers whole repository
+     */
+    @JsonProperty
+    public String groupId;
+
+    /**
+     * Metadata keyed by <code>groupId:artifactId:version</code>
+     */
+    @JsonProperty
+    public Map<String, Metadata> entries = new TreeMap<>();
+
+    public boolean covers(String dependencyGroupId) {
+        return groupId == null || groupId.isEmpty() || dependencyGroupId.equals(groupId) ||
+                dependencyGroupId.startsWith(groupId + ".");
+    }
+
+    public static String key(String groupId, String artifactId, String version) {
+        return groupId + ":" + artifactId + ":" + version;
+    }
+}
@@ -0,0 +1,22 @@
+package com.unibet.maven.domain;
+
+import org.codehaus.jackson.annotate.JsonProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class MetadataQuery {
+    /**
+     * Requested <code>groupId:artifactId:version</code> keys
+     */
+    @JsonProperty
+    public List<String> keys = new ArrayList<>();
+
+    /**
+     * Metadata of requested keys, keys without metadata are omitted by the metadata service
+     */
+    @JsonProperty
+    public Map<String, Metadata> entries = new TreeMap<>();
+}
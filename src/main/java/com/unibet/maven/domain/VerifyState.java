@@ -0,0 +1,24 @@
+package com.unibet.maven.domain;
+
+import org.codehaus.jackson.annotate.JsonProperty;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class VerifyState {
+    /**
+     * Fingerprint of the verified dependency set and of the configuration findings depend on. Contents of the local
+     * repository, metadata indexes and the local metadata store are not covered.
+     */
+    @JsonProperty
+    public String fingerprint;
+
+    @JsonProperty
+    public long timestamp;
+
+    /**
+     * Reported metadata keyed by metadata source in report order
+     */
+    @JsonProperty
+    public Map<String, Metadata> findings = new LinkedHashMap<>();
+}
@@ -0,0 +1,132 @@
+package com.unibet.maven.report;
+
+/*
+ * Copyright 2014 North Development AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.unibet.maven.domain.ExecutionReport;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.slf4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Thread safe collector of per artifact timings and per remote repository transfer statistics of a single
+ * mojo execution.</p>
+ * <p>Hits are successful transfers, i.e. metadata found or deployed, misses are metadata artifacts not found.</p>
+ */
+public class ExecutionStatistics {
+    public static final String RESOLVE = "resolve";
+    public static final String DOWNLOAD = "download";
+    public static final String PARSE = "parse";
+    public static final String WRITE = "write";
+    public static final String DEPLOY = "deploy";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final ExecutionReport report = new ExecutionReport();
+    private final long startNanos = System.nanoTime();
+
+    public ExecutionStatistics(String goal) {
+        report.goal = goal;
+    }
+
+    public String getGoal() {
+        return report.goal;
+    }
+
+    /**
+     * @return id of a single repository or comma separated ids of all given repositories
+     */
+    public static String repositoryKey(List<ArtifactRepository> repositories) {
+        StringBuilder key = new StringBuilder();
+        for (ArtifactRepository repository : repositories) {
+            if (key.length() > 0) {
+                key.append(',');
+            }
+            key.append(repository.getId());
+        }
+        return key.length() > 0 ? key.toString() : "local";
+    }
+
+    public synchronized void recordTiming(String artifact, String phase, long nanos) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        ExecutionReport.Phase statistics = report.phases.get(phase);
+        if (statistics == null) {
+            statistics = new ExecutionReport.Phase();
+            report.phases.put(phase, statistics);
+        }
+        statistics.count++;
+        statistics.totalMillis += millis;
+        statistics.maxMillis = Math.max(statistics.maxMillis, millis);
+
+        ExecutionReport.ArtifactTiming timing = new ExecutionReport.ArtifactTiming();
+        timing.artifact = artifact;
+        timing.phase = phase;
+        timing.millis = millis;
+        report.artifacts.add(timing);
+    }
+
+    public synchronized void recordHit(String repository, long bytes) {
+        ExecutionReport.Repository statistics = getRepository(repository);
+        statistics.hits++;
+        statistics.bytes += bytes;
+    }
+
+    public synchronized void recordMiss(String repository) {
+        getRepository(repository).misses++;
+    }
+
+    public synchronized void recordError(String repository) {
+        getRepository(repository).errors++;
+    }
+
+    public synchronized void logSummary(Logger logger) {
+        report.durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        logger.info("Dependency metadata {} took {} ms", report.goal, report.durationMillis);
+        for (Map.Entry<String, ExecutionReport.Phase> phase : report.phases.entrySet()) {
+            logger.info("  {}: {} artifacts, {} ms total, {} ms max", phase.getKey(), phase.getValue().count,
+                    phase.getValue().totalMillis, phase.getValue().maxMillis);
+        }
+        for (Map.Entry<String, ExecutionReport.Repository> repository : report.repositories.entrySet()) {
+            ExecutionReport.Repository statistics = repository.getValue();
+            logger.info("  {}: {} hits, {} misses, {} errors, {} bytes", repository.getKey(), statistics.hits,
+                    statistics.misses, statistics.errors, statistics.bytes);
+        }
+    }
+
+    /**
+     * Writes machine readable JSON report
+     */
+    public synchronized void writeReport(File file) throws IOException {
+        report.durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        file.getParentFile().mkdirs();
+        OBJECT_MAPPER.writeValue(file, report);
+    }
+
+    private ExecutionReport.Repository getRepository(String repository) {
+        ExecutionReport.Repository statistics = report.repositories.get(repository);
+        if (statistics == null) {
+            statistics = new ExecutionReport.Repository();
+            report.repositories.put(repository, statistics);
+        }
+        return statistics;
+    }
+}
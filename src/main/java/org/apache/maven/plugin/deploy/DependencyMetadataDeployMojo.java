@@ -16,46 +16,75 @@ package org.apache.maven.plugin.deploy;
  * limitations under the License.
  */
 
+import com.unibet.maven.AbstractDependencyMetadataMojo;
+import com.unibet.maven.report.ExecutionStatistics;
+import org.apache.maven.RepositoryUtils;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.ArtifactUtils;
-import org.apache.maven.artifact.deployer.ArtifactDeploymentException;
 import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.repository.ArtifactRepositoryFactory;
 import org.apache.maven.artifact.repository.layout.ArtifactRepositoryLayout;
+import org.apache.maven.model.DeploymentRepository;
+import org.apache.maven.model.DistributionManagement;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.deployment.DeployRequest;
+import org.eclipse.aether.deployment.DeploymentException;
+import org.eclipse.aether.repository.LocalRepository;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.repository.RepositoryPolicy;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResolutionException;
 
 import java.io.File;
-import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import static com.unibet.maven.AbstractDependencyMetadataMojo.METADATA_ARTIFACT_CLASSIFIER;
-import static com.unibet.maven.AbstractDependencyMetadataMojo.METADATA_ARTIFACT_TYPE;
-
 /**
  * <p>Mojo used to deploy existing metadata artifact to remote repository.</p>
- * <p>Mostly copied from maven-deploy-plugin {@link org.apache.maven.plugin.deploy.DeployMojo} class</p>
- * <p>Please note that only metadata artifact will be deploy, even excluding project's pom.xml</p>
+ * <p>Repository selection is mostly copied from maven-deploy-plugin {@link org.apache.maven.plugin.deploy.DeployMojo}
+ * class</p>
+ * <p>Please note that only metadata and metadata index artifacts will be deploy, even excluding project's
+ * pom.xml</p>
+ * <p>Checksums of already deployed artifacts are compared concurrently, changed artifacts are then deployed
+ * serially, so concurrent uploads never race on repository metadata of the project.</p>
  *
  * @author Ilja Bobkevic <ilja.bobkevic@unibet.com>
  */
 @Mojo(name = "deploy", defaultPhase = LifecyclePhase.DEPLOY, threadSafe = true)
-public class DependencyMetadataDeployMojo extends AbstractDeployMojo {
-
-    protected final Logger logger = LoggerFactory.getLogger(this.getClass());
+public class DependencyMetadataDeployMojo extends AbstractDependencyMetadataMojo {
 
     private static final Pattern ALT_REPO_SYNTAX_PATTERN = Pattern.compile("(.+)::(.+)::(.+)");
 
-    @Parameter(defaultValue = "${project}", readonly = true)
-    protected MavenProject project;
-
     /**
      * Specifies an alternative repository to which the project artifacts should be deployed ( other than those
      * specified in &lt;distributionManagement&gt; ). <br/>
@@ -95,70 +124,324 @@ public class DependencyMetadataDeployMojo extends AbstractDeployMojo {
     @Parameter(property = "dependency.metadata.artifactAutoScan", defaultValue = "false")
     private boolean artifactAutoScan;
 
+    /**
+     * If true metadata artifacts whose content is already deployed in the deployment repository are not uploaded
+     * again
+     */
+    @Parameter(property = "dependency.metadata.skipUnchanged", defaultValue = "true")
+    private boolean skipUnchanged;
+
+    @Component
+    private ArtifactRepositoryFactory repositoryFactory;
+
+    @Component(role = ArtifactRepositoryLayout.class)
+    private Map<String, ArtifactRepositoryLayout> repositoryLayouts;
+
+    private final ExecutionStatistics statistics = new ExecutionStatistics("deploy");
+
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
         @SuppressWarnings("unchecked")
         List<Artifact> attachedArtifacts = project.getAttachedArtifacts();
 
         if (artifactAutoScan) {
-            logger.info("Attempting metadata artifact scan...");
-            final String fileNameRegex = project.getArtifactId() + "-(.+)-" + METADATA_ARTIFACT_CLASSIFIER + "\\." +
-                    METADATA_ARTIFACT_TYPE;
-            File targetDirectory = new File(project.getBuild().getDirectory());
-            String[] metadataArtifactFileNames = targetDirectory.list(new FilenameFilter() {
-                public boolean accept(File directory, String fileName) {
-                    return fileName.matches(fileNameRegex);
+            scanMetadataArtifacts(attachedArtifacts);
+        }
+
+        if (attachedArtifacts.isEmpty()) {
+            logger.warn("Project does not contain any attached artifacts. Skipping...");
+            return;
+        }
+
+        List<Artifact> metadataArtifacts = new ArrayList<>();
+        List<RemoteRepository> repositories = new ArrayList<>();
+        Map<Boolean, RemoteRepository> deploymentRepositories = new LinkedHashMap<>();
+        for (Artifact attachedArtifact : attachedArtifacts) {
+            if (isMetadataArtifact(attachedArtifact)) {
+                // Version range rules have a snapshot version even when deployed from a release project
+                boolean snapshot = isRulesArtifact(attachedArtifact) ? attachedArtifact.isSnapshot() :
+                        ArtifactUtils.isSnapshot(project.getVersion());
+                RemoteRepository repository = deploymentRepositories.get(snapshot);
+                if (repository == null) {
+                    repository = toRemoteRepository(getDeploymentRepository(project, snapshot));
+                    deploymentRepositories.put(snapshot, repository);
                 }
-            });
+                attachedArtifact.setFile(new File(project.getBuild().getDirectory(), attachedArtifact.getArtifactId() +
+                        "-" + attachedArtifact.getVersion() + "-" + attachedArtifact.getClassifier() + "." +
+                        attachedArtifact.getType()));
+                metadataArtifacts.add(attachedArtifact);
+                repositories.add(repository);
+            }
+        }
+
+        List<Boolean> deployed = skipUnchanged ? findDeployed(metadataArtifacts, repositories) :
+                Collections.nCopies(metadataArtifacts.size(), false);
+        // Repository metadata of an artifact lists only the first version of a request, so versions are deployed
+        // one after another, each merging its version into the repository metadata deployed before
+        Map<String, List<Artifact>> changedArtifacts = new LinkedHashMap<>();
+        Map<String, RemoteRepository> changedRepositories = new LinkedHashMap<>();
+        for (int i = 0; i < metadataArtifacts.size(); i++) {
+            Artifact metadataArtifact = metadataArtifacts.get(i);
+            RemoteRepository repository = repositories.get(i);
+            if (deployed.get(i)) {
+                logger.info("Metadata artifact {} is already deployed to {}. Skipping...", metadataArtifact,
+                        repository.getId());
+                continue;
+            }
+            String key = repository.getId() + ':' + metadataArtifact.getArtifactId() + ':' +
+                    metadataArtifact.getVersion();
+            List<Artifact> artifacts = changedArtifacts.get(key);
+            if (artifacts == null) {
+                artifacts = new ArrayList<>();
+                changedArtifacts.put(key, artifacts);
+                changedRepositories.put(key, repository);
+            }
+            artifacts.add(metadataArtifact);
+        }
+
+        int deployedCount = 0;
+        for (Map.Entry<String, List<Artifact>> entry : changedArtifacts.entrySet()) {
+            deploy(entry.getValue(), changedRepositories.get(entry.getKey()));
+            deployedCount += entry.getValue().size();
+        }
+        logger.info("Deployed {} metadata artifacts, {} unchanged artifacts skipped", deployedCount,
+                metadataArtifacts.size() - deployedCount);
+        reportStatistics(statistics);
+    }
+
+    private static boolean isMetadataArtifact(Artifact artifact) {
+        if (METADATA_ARTIFACT_TYPE.equals(artifact.getType())) {
+            return METADATA_ARTIFACT_CLASSIFIER.equals(artifact.getClassifier()) ||
+                    METADATA_INDEX_CLASSIFIER.equals(artifact.getClassifier());
+        }
+        return METADATA_FILTER_TYPE.equals(artifact.getType()) &&
+                METADATA_FILTER_CLASSIFIER.equals(artifact.getClassifier());
+    }
+
+    private static boolean isRulesArtifact(Artifact artifact) {
+        return METADATA_RULES_VERSION.equals(artifact.getVersion()) &&
+                artifact.getArtifactId().endsWith(METADATA_RULES_ARTIFACT_SUFFIX);
+    }
 
-            for (String metadataArtifactFileName : metadataArtifactFileNames) {
-                Pattern pattern = Pattern.compile(fileNameRegex);
-                Matcher matcher = pattern.matcher(metadataArtifactFileName);
-                if (matcher.find()) {
-                    String version = matcher.group();
+    /**
+     * Attaches metadata artifact files of the project found in the build directory with a single directory listing
+     */
+    private void scanMetadataArtifacts(List<Artifact> attachedArtifacts) throws MojoExecutionException {
+        logger.info("Attempting metadata artifact scan...");
+        Pattern fileNamePattern = Pattern.compile(Pattern.quote(project.getArtifactId()) + "-(.+)-" +
+                Pattern.quote(METADATA_ARTIFACT_CLASSIFIER + "." + METADATA_ARTIFACT_TYPE));
+        String rulesFileVersion = METADATA_RULES_ARTIFACT_SUFFIX.substring(1) + "-" + METADATA_RULES_VERSION;
+        Set<String> attachedIds = new HashSet<>();
+        for (Artifact attachedArtifact : attachedArtifacts) {
+            attachedIds.add(attachedArtifact.getId());
+        }
+
+        Path targetDirectory = new File(project.getBuild().getDirectory()).toPath();
+        if (!Files.isDirectory(targetDirectory)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(targetDirectory)) {
+            for (Path file : files) {
+                Matcher matcher = fileNamePattern.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    boolean rules = rulesFileVersion.equals(matcher.group(1));
                     Artifact metadataArtifact = artifactFactory.createArtifactWithClassifier(project.getGroupId(),
-                            project.getArtifactId(), version, METADATA_ARTIFACT_TYPE,
+                            rules ? getRulesArtifactId(project.getArtifactId()) : project.getArtifactId(),
+                            rules ? METADATA_RULES_VERSION : matcher.group(1), METADATA_ARTIFACT_TYPE,
                             METADATA_ARTIFACT_CLASSIFIER);
-                    attachedArtifacts.add(metadataArtifact);
-                    logger.info("Metadata artifact automatically attached {}", metadataArtifact);
-                } else {
-                    throw new MojoFailureException("Failed parsing version from artifact file " +
-                            metadataArtifactFileName);
+                    if (attachedIds.add(metadataArtifact.getId())) {
+                        attachedArtifacts.add(metadataArtifact);
+                        logger.info("Metadata artifact automatically attached {}", metadataArtifact);
+                    }
                 }
             }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed scanning metadata artifacts in " + targetDirectory, e);
         }
+    }
 
-        if (attachedArtifacts.isEmpty()) {
-            logger.warn("Project does not contain any attached artifacts. Skipping...");
-            return;
+    /**
+     * Compares checksums of the metadata artifacts with checksums deployed in their repositories concurrently
+     *
+     * @return for each metadata artifact true if identical artifact is already deployed
+     */
+    private List<Boolean> findDeployed(List<Artifact> metadataArtifacts, final List<RemoteRepository> repositories)
+            throws MojoExecutionException {
+        File checksumDirectory;
+        try {
+            checksumDirectory = Files.createTempDirectory("dependency-metadata-deploy").toFile();
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed creating temporary repository", e);
         }
+        // Checksums are fetched into a temporary local repository, always from the deployment repository
+        DefaultRepositorySystemSession checksumSession =
+                new DefaultRepositorySystemSession(session.getRepositorySession());
+        checksumSession.setLocalRepositoryManager(repositorySystem.newLocalRepositoryManager(checksumSession,
+                new LocalRepository(checksumDirectory)));
+        checksumSession.setUpdatePolicy(RepositoryPolicy.UPDATE_POLICY_ALWAYS);
+        checksumSession.setChecksumPolicy(RepositoryPolicy.CHECKSUM_POLICY_IGNORE);
+        final RepositorySystemSession repositorySession = checksumSession;
 
-        for (Artifact attachedArtifact : attachedArtifacts) {
-            if (METADATA_ARTIFACT_CLASSIFIER.equals(attachedArtifact.getClassifier()) &&
-                    METADATA_ARTIFACT_TYPE.equals(attachedArtifact.getType())) {
-                String filename = attachedArtifact.getArtifactId() + "-" + attachedArtifact.getVersion() +
-                        "-" + attachedArtifact.getClassifier() + "." + attachedArtifact.getType();
-                File metadataArtifactFile = new File(project.getBuild().getDirectory() + File.separator + filename);
+        ExecutorService executor = createExecutor(metadataArtifacts.size());
+        List<Future<Boolean>> futures = new ArrayList<>(metadataArtifacts.size());
+        try {
+            for (int i = 0; i < metadataArtifacts.size(); i++) {
+                final Artifact metadataArtifact = metadataArtifacts.get(i);
+                final RemoteRepository repository = repositories.get(i);
+                futures.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        return isDeployed(metadataArtifact, repository, repositorySession);
+                    }
+                }));
+            }
 
-                ArtifactRepository repo = getDeploymentRepository(project);
+            List<Boolean> deployed = new ArrayList<>(futures.size());
+            for (Future<Boolean> future : futures) {
                 try {
-                    deploy(metadataArtifactFile, attachedArtifact, repo, getLocalRepository());
-                } catch (ArtifactDeploymentException e) {
-                    throw new MojoExecutionException("Failed deploying metadata artifact!", e);
+                    deployed.add(future.get());
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof MojoExecutionException) {
+                        throw (MojoExecutionException) e.getCause();
+                    }
+                    throw new MojoExecutionException("Failed comparing metadata artifact checksum", e.getCause());
                 }
             }
+            return deployed;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while comparing metadata artifact checksums", e);
+        } finally {
+            executor.shutdownNow();
+            deleteDirectory(checksumDirectory);
+        }
+    }
+
+    /**
+     * Fetches SHA-1 checksum file of the deployed artifact and compares it with SHA-1 checksum of the local file
+     */
+    private boolean isDeployed(Artifact metadataArtifact, RemoteRepository repository,
+                               RepositorySystemSession repositorySession) throws MojoExecutionException {
+        org.eclipse.aether.artifact.Artifact checksumArtifact = new DefaultArtifact(metadataArtifact.getGroupId(),
+                metadataArtifact.getArtifactId(), metadataArtifact.getClassifier(),
+                metadataArtifact.getArtifactHandler().getExtension() + ".sha1", metadataArtifact.getVersion());
+        String deployedChecksum;
+        long start = System.nanoTime();
+        try {
+            File checksumFile = repositorySystem.resolveArtifact(repositorySession,
+                    new ArtifactRequest(checksumArtifact, Collections.singletonList(repository), null))
+                    .getArtifact().getFile();
+            deployedChecksum = new String(Files.readAllBytes(checksumFile.toPath()), StandardCharsets.US_ASCII);
+        } catch (ArtifactResolutionException e) {
+            logger.debug("Checksum of deployed artifact {} not available: {}", metadataArtifact, e.getMessage());
+            return false;
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed reading deployed checksum of " + metadataArtifact, e);
+        } finally {
+            statistics.recordTiming(metadataArtifact.getId(), ExecutionStatistics.RESOLVE, System.nanoTime() - start);
+        }
+        // Checksum files may be followed by the file name
+        String[] tokens = deployedChecksum.trim().split("\\s+");
+        try {
+            return tokens[0].equalsIgnoreCase(sha1(metadataArtifact.getFile()));
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed computing checksum of metadata artifact " + metadataArtifact, e);
+        }
+    }
+
+    /**
+     * Deploys artifacts of a single version in one request
+     */
+    private void deploy(List<Artifact> artifacts, RemoteRepository repository) throws MojoExecutionException {
+        DeployRequest request = new DeployRequest();
+        request.setRepository(repository);
+        long bytes = 0;
+        for (Artifact artifact : artifacts) {
+            request.addArtifact(RepositoryUtils.toArtifact(artifact));
+            bytes += artifact.getFile().length();
+        }
+        long start = System.nanoTime();
+        try {
+            repositorySystem.deploy(session.getRepositorySession(), request);
+            statistics.recordHit(repository.getId(), bytes);
+        } catch (DeploymentException e) {
+            statistics.recordError(repository.getId());
+            throw new MojoExecutionException("Failed deploying metadata artifacts!", e);
+        } finally {
+            statistics.recordTiming(artifacts.get(0).getId(), ExecutionStatistics.DEPLOY, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @return repository with credentials and proxy of the build applied unless set already
+     */
+    private RemoteRepository toRemoteRepository(ArtifactRepository deploymentRepository) {
+        RemoteRepository repository = RepositoryUtils.toRepo(deploymentRepository);
+        RepositorySystemSession repositorySession = session.getRepositorySession();
+        RemoteRepository.Builder builder = new RemoteRepository.Builder(repository);
+        if (repository.getAuthentication() == null) {
+            builder.setAuthentication(repositorySession.getAuthenticationSelector().getAuthentication(repository));
+        }
+        if (repository.getProxy() == null) {
+            builder.setProxy(repositorySession.getProxySelector().getProxy(repository));
         }
+        return builder.build();
     }
 
+    private static String sha1(File file) throws IOException {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1").digest(Files.readAllBytes(file.toPath()));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        StringBuilder checksum = new StringBuilder();
+        for (byte b : digest) {
+            checksum.append(String.format("%02x", b));
+        }
+        return checksum.toString();
+    }
 
-    private ArtifactRepository getDeploymentRepository(MavenProject project)
+    private void deleteDirectory(File directory) {
+        try {
+            Files.walkFileTree(directory.toPath(), new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                    Files.delete(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                    Files.delete(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            logger.debug("Failed deleting temporary repository {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private ArtifactRepositoryLayout getLayout(String id) throws MojoExecutionException {
+        ArtifactRepositoryLayout layout = repositoryLayouts.get(id);
+        if (layout == null) {
+            throw new MojoExecutionException("Invalid repository layout: " + id);
+        }
+        return layout;
+    }
+
+    /**
+     * @param snapshot true if deployed artifact has snapshot version, which differs from the project version only for
+     *                 version range rules metadata artifact
+     */
+    private ArtifactRepository getDeploymentRepository(MavenProject project, boolean snapshot)
             throws MojoExecutionException, MojoFailureException {
         ArtifactRepository repo = null;
 
         String altDeploymentRepo;
-        if (ArtifactUtils.isSnapshot(project.getVersion()) && altSnapshotDeploymentRepository != null) {
+        if (snapshot && altSnapshotDeploymentRepository != null) {
             altDeploymentRepo = altSnapshotDeploymentRepository;
-        } else if (!ArtifactUtils.isSnapshot(project.getVersion()) && altReleaseDeploymentRepository != null) {
+        } else if (!snapshot && altReleaseDeploymentRepository != null) {
             altDeploymentRepo = altReleaseDeploymentRepository;
         } else {
             altDeploymentRepo = altDeploymentRepository;
@@ -183,6 +466,17 @@ public class DependencyMetadataDeployMojo extends AbstractDeployMojo {
             }
         }
 
+        if (repo == null && snapshot != ArtifactUtils.isSnapshot(project.getVersion())) {
+            DistributionManagement distributionManagement = project.getDistributionManagement();
+            DeploymentRepository deploymentRepository = distributionManagement == null ? null : snapshot ?
+                    distributionManagement.getSnapshotRepository() : distributionManagement.getRepository();
+            if (deploymentRepository != null) {
+                repo = repositoryFactory.createDeploymentArtifactRepository(deploymentRepository.getId(),
+                        deploymentRepository.getUrl(), getLayout(deploymentRepository.getLayout()),
+                        deploymentRepository.isUniqueVersion());
+            }
+        }
+
         if (repo == null) {
             repo = project.getDistributionManagementArtifactRepository();
         }
@@ -0,0 +1,151 @@
+package com.unibet.maven;
+
+/*
+ * Copyright 2014 North Development AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.unibet.maven.domain.Metadata;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.versioning.VersionRange;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class ConcurrentMetadataResolverTest {
+
+    @Test
+    public void mergesFallbackFindingsInDependencyOrder() throws MojoExecutionException {
+        List<Artifact> dependencies = Arrays.asList(createArtifact("a"), createArtifact("b"),
+                createArtifact("c"));
+        ConcurrentMetadataResolver resolver = new ConcurrentMetadataResolver(Executors.newFixedThreadPool(3), false,
+                0, 200, TimeUnit.MILLISECONDS, true);
+
+        List<MetadataFinding> findings = resolver.resolve(dependencies, new ConcurrentMetadataResolver.Lookup() {
+            @Override
+            public MetadataFinding lookup(Artifact dependency) throws MojoExecutionException {
+                if (dependency.getArtifactId().equals("a")) {
+                    try {
+                        Thread.sleep(TimeUnit.SECONDS.toMillis(10));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return createFinding("remote:" + dependency.getArtifactId());
+            }
+        }, new ConcurrentMetadataResolver.Lookup() {
+            @Override
+            public MetadataFinding lookup(Artifact dependency) {
+                return createFinding("local:" + dependency.getArtifactId());
+            }
+        });
+
+        List<String> sources = new ArrayList<>();
+        for (MetadataFinding finding : findings) {
+            sources.add(finding.getSource());
+        }
+        assertEquals(Arrays.asList("local:a", "remote:b", "remote:c"), sources);
+        assertEquals(dependencies.subList(0, 1), resolver.getTimedOut());
+    }
+
+    @Test
+    public void reportsFailingFindingFirstAndIgnoresLookupsFailedAfterIt() throws MojoExecutionException {
+        List<Artifact> dependencies = Arrays.asList(createArtifact("a"), createArtifact("b"),
+                createArtifact("c"));
+        // Lookups complete in dependency order while being submitted
+        ConcurrentMetadataResolver resolver = new ConcurrentMetadataResolver(new DirectExecutorService(), true);
+
+        List<MetadataFinding> findings = resolver.resolve(dependencies, new ConcurrentMetadataResolver.Lookup() {
+            @Override
+            public MetadataFinding lookup(Artifact dependency) throws MojoExecutionException {
+                switch (dependency.getArtifactId()) {
+                    case "a":
+                        return createFinding("remote:a");
+                    case "b":
+                        MetadataFinding finding = createFinding("remote:b");
+                        finding.getMetadata().fail = true;
+                        return finding;
+                    default:
+                        throw new MojoExecutionException("Repository of " + dependency + " is not available");
+                }
+            }
+        });
+
+        List<String> sources = new ArrayList<>();
+        for (MetadataFinding finding : findings) {
+            sources.add(finding.getSource());
+        }
+        assertEquals(Arrays.asList("remote:b", "remote:a"), sources);
+    }
+
+    private static Artifact createArtifact(String artifactId) {
+        return new DefaultArtifact("com.example", artifactId, VersionRange.createFromVersion("1.0"),
+                Artifact.SCOPE_COMPILE, "jar", null, new DefaultArtifactHandler("jar"));
+    }
+
+    private static MetadataFinding createFinding(String source) {
+        Metadata metadata = new Metadata();
+        metadata.message = source;
+        return new MetadataFinding(source, metadata);
+    }
+
+    /**
+     * Runs tasks in the submitting thread
+     */
+    private static class DirectExecutorService extends AbstractExecutorService {
+        private boolean shutdown;
+
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+
+        @Override
+        public void shutdown() {
+            shutdown = true;
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            shutdown = true;
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return shutdown;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.unibet.maven;
+
+/*
+ * Copyright 2014 North Development AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.repository.ArtifactRepositoryPolicy;
+import org.apache.maven.artifact.repository.Authentication;
+import org.apache.maven.artifact.repository.MavenArtifactRepository;
+import org.apache.maven.artifact.repository.layout.DefaultRepositoryLayout;
+import org.apache.maven.repository.Proxy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ConditionalVersionFetcherTest {
+    private static final String METADATA = "<metadata><groupId>com.example</groupId><artifactId>library</artifactId>" +
+            "<versioning><versions><version>1.0</version><version>1.1</version></versions></versioning></metadata>";
+    private static final String ETAG = "\"metadata-1\"";
+    // user:secret
+    private static final String CREDENTIALS = "Basic dXNlcjpzZWNyZXQ=";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private HttpServer server;
+    private final List<Integer> statuses = new CopyOnWriteArrayList<>();
+    private String authorizationHeader;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                if (!CREDENTIALS.equals(exchange.getRequestHeaders().getFirst(authorizationHeader))) {
+                    respond(exchange, 401, null);
+                } else if (!exchange.getRequestURI().getPath().equals("/com/example/library/maven-metadata.xml")) {
+                    respond(exchange, 404, null);
+                } else if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    respond(exchange, 304, null);
+                } else {
+                    exchange.getResponseHeaders().set("ETag", ETAG);
+                    respond(exchange, 200, METADATA.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void fetchesVersionsWithRepositoryCredentials() throws IOException {
+        authorizationHeader = "Authorization";
+        ArtifactRepository repository = createRepository("http://localhost:" + server.getAddress().getPort());
+        repository.setAuthentication(new Authentication("user", "secret"));
+        ConditionalVersionFetcher fetcher = new ConditionalVersionFetcher(temporaryFolder.getRoot(), 5000);
+
+        List<ArtifactRepository> repositories = Collections.singletonList(repository);
+        assertEquals(new LinkedHashSet<>(Arrays.asList("1.0", "1.1")),
+                fetcher.fetchVersions("com.example", "library", repositories));
+        assertEquals(new LinkedHashSet<>(Arrays.asList("1.0", "1.1")),
+                fetcher.fetchVersions("com.example", "library", repositories));
+        assertEquals(Arrays.asList(200, 304), statuses);
+    }
+
+    @Test(expected = IOException.class)
+    public void failsWithoutRepositoryCredentials() throws IOException {
+        authorizationHeader = "Authorization";
+        ArtifactRepository repository = createRepository("http://localhost:" + server.getAddress().getPort());
+        new ConditionalVersionFetcher(temporaryFolder.getRoot(), 5000).fetchVersions("com.example", "library",
+                Collections.singletonList(repository));
+    }
+
+    @Test
+    public void fetchesVersionsThroughProxy() throws IOException {
+        authorizationHeader = "Proxy-Authorization";
+        ArtifactRepository repository = createRepository("http://repository.invalid/");
+        Proxy proxy = new Proxy();
+        proxy.setProtocol("http");
+        proxy.setHost("localhost");
+        proxy.setPort(server.getAddress().getPort());
+        proxy.setUserName("user");
+        proxy.setPassword("secret");
+        repository.setProxy(proxy);
+
+        assertEquals(new LinkedHashSet<>(Arrays.asList("1.0", "1.1")),
+                new ConditionalVersionFetcher(temporaryFolder.getRoot(), 5000).fetchVersions("com.example",
+                        "library", Collections.singletonList(repository)));
+    }
+
+    @Test
+    public void skipsRepositoriesNotAccessibleOverHttp() throws IOException {
+        ArtifactRepository repository = createRepository(temporaryFolder.getRoot().toURI().toString());
+        assertNull(new ConditionalVersionFetcher(temporaryFolder.getRoot(), 5000).fetchVersions("com.example",
+                "library", Collections.singletonList(repository)));
+    }
+
+    private void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        statuses.add(status);
+        exchange.sendResponseHeaders(status, body == null ? -1 : body.length);
+        if (body != null) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+        exchange.close();
+    }
+
+    private static ArtifactRepository createRepository(String url) {
+        ArtifactRepositoryPolicy policy = new ArtifactRepositoryPolicy(true,
+                ArtifactRepositoryPolicy.UPDATE_POLICY_DAILY, ArtifactRepositoryPolicy.CHECKSUM_POLICY_IGNORE);
+        return new MavenArtifactRepository("repository", url, new DefaultRepositoryLayout(), policy, policy);
+    }
+}
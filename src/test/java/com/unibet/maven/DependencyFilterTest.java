@@ -0,0 +1,107 @@
+package com.unibet.maven;
+
+/*
+ * Copyright 2014 North Development AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.versioning.VersionRange;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DependencyFilterTest {
+    private static final List<String> NONE = Collections.emptyList();
+
+    @Test
+    public void includesAllWithoutPatterns() {
+        DependencyFilter filter = new DependencyFilter(null, null);
+
+        assertTrue(filter.include(createArtifact("com.example", "library", Artifact.SCOPE_COMPILE)));
+    }
+
+    @Test
+    public void matchesExactSegments() {
+        DependencyFilter filter = new DependencyFilter(Collections.singletonList("com.example:library"), NONE);
+
+        assertTrue(filter.include(createArtifact("com.example", "library", Artifact.SCOPE_COMPILE)));
+        assertFalse(filter.include(createArtifact("com.example", "library-api", Artifact.SCOPE_COMPILE)));
+        assertFalse(filter.include(createArtifact("com.example.internal", "library", Artifact.SCOPE_COMPILE)));
+    }
+
+    @Test
+    public void matchesPrefixSegments() {
+        DependencyFilter filter = new DependencyFilter(Collections.singletonList("com.example*:library-*"), NONE);
+
+        assertTrue(filter.include(createArtifact("com.example", "library-api", Artifact.SCOPE_COMPILE)));
+        assertTrue(filter.include(createArtifact("com.example.internal", "library-impl", Artifact.SCOPE_COMPILE)));
+        assertFalse(filter.include(createArtifact("com.example", "library", Artifact.SCOPE_COMPILE)));
+        assertFalse(filter.include(createArtifact("org.example", "library-api", Artifact.SCOPE_COMPILE)));
+    }
+
+    @Test
+    public void matchesWildcardSegmentsAsRegularExpressions() {
+        DependencyFilter filter = new DependencyFilter(Collections.singletonList("*.example:*-api"), NONE);
+
+        assertTrue(filter.include(createArtifact("com.example", "library-api", Artifact.SCOPE_COMPILE)));
+        assertTrue(filter.include(createArtifact("org.example", "-api", Artifact.SCOPE_COMPILE)));
+        assertFalse(filter.include(createArtifact("com.example.internal", "library-api", Artifact.SCOPE_COMPILE)));
+        assertFalse(filter.include(createArtifact("com.example", "library-api-test", Artifact.SCOPE_COMPILE)));
+    }
+
+    @Test
+    public void quotesRegularExpressionCharacters() {
+        DependencyFilter filter = new DependencyFilter(Collections.singletonList("com.*:library"), NONE);
+
+        assertTrue(filter.include(createArtifact("com.example", "library", Artifact.SCOPE_COMPILE)));
+        assertFalse(filter.include(createArtifact("comXexample", "library", Artifact.SCOPE_COMPILE)));
+    }
+
+    @Test
+    public void matchesScope() {
+        DependencyFilter filter = new DependencyFilter(NONE, Collections.singletonList("*:*:test"));
+
+        assertTrue(filter.include(createArtifact("com.example", "library", Artifact.SCOPE_COMPILE)));
+        assertFalse(filter.include(createArtifact("com.example", "library", Artifact.SCOPE_TEST)));
+    }
+
+    @Test
+    public void excludesTakePrecedenceOverIncludes() {
+        DependencyFilter filter = new DependencyFilter(Collections.singletonList("com.example"),
+                Arrays.asList("com.example:library-test", "com.example:*:provided"));
+
+        assertTrue(filter.include(createArtifact("com.example", "library", Artifact.SCOPE_COMPILE)));
+        assertFalse(filter.include(createArtifact("com.example", "library-test", Artifact.SCOPE_COMPILE)));
+        assertFalse(filter.include(createArtifact("com.example", "library", Artifact.SCOPE_PROVIDED)));
+        assertFalse(filter.include(createArtifact("org.example", "library", Artifact.SCOPE_COMPILE)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsPatternWithTooManySegments() {
+        new DependencyFilter(Collections.singletonList("com.example:library:compile:jar"), NONE);
+    }
+
+    private static Artifact createArtifact(String groupId, String artifactId, String scope) {
+        return new DefaultArtifact(groupId, artifactId, VersionRange.createFromVersion("1.0"), scope, "jar", null,
+                new DefaultArtifactHandler("jar"));
+    }
+}
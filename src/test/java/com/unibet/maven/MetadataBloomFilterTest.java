@@ -0,0 +1,143 @@
+package com.unibet.maven;
+
+/*
+ * Copyright 2014 North Development AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MetadataBloomFilterTest {
+    private static final int KEYS = 10000;
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void distributesHashesOfSimilarKeys() {
+        int buckets = 64;
+        int[] lowBuckets = new int[buckets];
+        int[] highBuckets = new int[buckets];
+        Set<Long> hashes = new HashSet<>();
+        for (int i = 0; i < KEYS; i++) {
+            long hash = MetadataBloomFilter.hash(key(i));
+            assertEquals(hash, MetadataBloomFilter.hash(key(i)));
+            hashes.add(hash);
+            lowBuckets[(int) (hash & (buckets - 1))]++;
+            highBuckets[(int) ((hash >>> 32) & (buckets - 1))]++;
+        }
+
+        assertEquals(KEYS, hashes.size());
+        int expected = KEYS / buckets;
+        for (int i = 0; i < buckets; i++) {
+            assertTrue("Low half bucket " + i + " of " + lowBuckets[i], Math.abs(lowBuckets[i] - expected) < 60);
+            assertTrue("High half bucket " + i + " of " + highBuckets[i], Math.abs(highBuckets[i] - expected) < 60);
+        }
+    }
+
+    @Test
+    public void sizesFilterForFalsePositiveRate() {
+        MetadataBloomFilter filter = MetadataBloomFilter.create("com.example", KEYS, FALSE_POSITIVE_RATE);
+
+        // -n * ln(p) / ln(2)^2 bits rounded up to whole words and ln(2) * bits / n hash functions
+        assertEquals(1498 * Long.SIZE / Byte.SIZE, filter.getSize());
+        assertEquals(7, filter.getHashCount());
+    }
+
+    @Test
+    public void neverReportsAddedKeysAbsent() {
+        MetadataBloomFilter filter = createFilter();
+
+        for (int i = 0; i < KEYS; i++) {
+            assertTrue(key(i), filter.mightContain(key(i)));
+        }
+    }
+
+    @Test
+    public void reportsAbsentKeysPresentAtConfiguredRate() {
+        MetadataBloomFilter filter = createFilter();
+
+        int probes = 100000;
+        int falsePositives = 0;
+        for (int i = KEYS; i < KEYS + probes; i++) {
+            if (filter.mightContain(key(i))) {
+                falsePositives++;
+            }
+        }
+        double rate = (double) falsePositives / probes;
+        assertTrue("False positive rate " + rate, rate < FALSE_POSITIVE_RATE * 1.5);
+    }
+
+    @Test
+    public void readsWrittenFilter() throws IOException {
+        MetadataBloomFilter filter = createFilter();
+        File file = temporaryFolder.newFile("filter.bin");
+        filter.writeTo(file);
+
+        MetadataBloomFilter read = MetadataBloomFilter.readFrom(file);
+
+        assertEquals("com.example", read.getGroupId());
+        assertEquals(filter.getHashCount(), read.getHashCount());
+        assertEquals(filter.getSize(), read.getSize());
+        for (int i = 0; i < KEYS; i++) {
+            assertTrue(key(i), read.mightContain(key(i)));
+        }
+        File rewritten = temporaryFolder.newFile("rewritten.bin");
+        read.writeTo(rewritten);
+        assertArrayEquals(Files.readAllBytes(file.toPath()), Files.readAllBytes(rewritten.toPath()));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsFileOfOtherFormat() throws IOException {
+        File file = temporaryFolder.newFile("filter.bin");
+        Files.write(file.toPath(), new byte[64]);
+        MetadataBloomFilter.readFrom(file);
+    }
+
+    @Test
+    public void coversGroupIdPrefixOnSegmentBoundaries() {
+        MetadataBloomFilter filter = MetadataBloomFilter.create("com.example", 1, FALSE_POSITIVE_RATE);
+
+        assertTrue(filter.covers("com.example"));
+        assertTrue(filter.covers("com.example.internal"));
+        assertFalse(filter.covers("com.examples"));
+        assertTrue(MetadataBloomFilter.create("", 1, FALSE_POSITIVE_RATE).covers("org.example"));
+    }
+
+    private static MetadataBloomFilter createFilter() {
+        MetadataBloomFilter filter = MetadataBloomFilter.create("com.example", KEYS, FALSE_POSITIVE_RATE);
+        for (int i = 0; i < KEYS; i++) {
+            filter.add(key(i));
+        }
+        return filter;
+    }
+
+    private static String key(int i) {
+        return "com.example:library-" + (i / 100) + ":1." + (i % 100);
+    }
+}
@@ -0,0 +1,146 @@
+package com.unibet.maven;
+
+/*
+ * Copyright 2014 North Development AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.unibet.maven.cache.SessionResolutionCache;
+import com.unibet.maven.domain.Metadata;
+import com.unibet.maven.report.ExecutionStatistics;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.repository.internal.MavenRepositorySystemUtils;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.plexus.ContainerConfiguration;
+import org.codehaus.plexus.DefaultContainerConfiguration;
+import org.codehaus.plexus.DefaultPlexusContainer;
+import org.codehaus.plexus.PlexusConstants;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.repository.LocalRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <p>Looks version range rules and metadata of individual versions up in the local repository.</p>
+ */
+public class MetadataLookupTest {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final String RULES_SOURCE = "com.example:library-metadata-rules:json:metadata:" +
+            AbstractDependencyMetadataMojo.METADATA_RULES_VERSION;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private DefaultPlexusContainer container;
+    private MetadataArtifactResolver artifactResolver;
+
+    @Before
+    public void setUp() throws Exception {
+        ContainerConfiguration configuration = new DefaultContainerConfiguration()
+                .setClassPathScanning(PlexusConstants.SCANNING_INDEX).setAutoWiring(true);
+        container = new DefaultPlexusContainer(configuration);
+        RepositorySystem repositorySystem = container.lookup(RepositorySystem.class);
+        DefaultRepositorySystemSession repositorySession = MavenRepositorySystemUtils.newSession();
+        repositorySession.setLocalRepositoryManager(repositorySystem.newLocalRepositoryManager(repositorySession,
+                new LocalRepository(temporaryFolder.newFolder("local"))));
+        artifactResolver = new MetadataArtifactResolver(repositorySystem, repositorySession);
+
+        write("2.0", createMetadata("Library 2.0 has a memory leak", null));
+    }
+
+    @After
+    public void tearDown() {
+        container.dispose();
+    }
+
+    @Test
+    public void findsRulesOfVersionInRange() throws Exception {
+        write(AbstractDependencyMetadataMojo.METADATA_RULES_VERSION, createMetadata("Upgrade to 2.0", "[,2.0)"));
+
+        MetadataFinding finding = createLookup(true).lookup(createDependency("1.0"));
+
+        assertEquals(RULES_SOURCE, finding.getSource());
+        assertEquals("Upgrade to 2.0", finding.getMetadata().message);
+    }
+
+    @Test
+    public void findsVersionMetadataOutOfRulesRange() throws Exception {
+        write(AbstractDependencyMetadataMojo.METADATA_RULES_VERSION, createMetadata("Upgrade to 2.0", "[,2.0)"));
+
+        MetadataFinding finding = createLookup(true).lookup(createDependency("2.0"));
+
+        assertEquals("com.example:library:json:metadata:2.0", finding.getSource());
+        assertEquals("Library 2.0 has a memory leak", finding.getMetadata().message);
+        assertNull(createLookup(true).lookup(createDependency("2.1")));
+    }
+
+    @Test
+    public void findsVersionMetadataDespiteInvalidRulesRange() throws Exception {
+        write(AbstractDependencyMetadataMojo.METADATA_RULES_VERSION, createMetadata("Upgrade to 2.0", "[,2.0"));
+
+        assertEquals("com.example:library:json:metadata:2.0",
+                createLookup(true).lookup(createDependency("2.0")).getSource());
+        assertNull(createLookup(true).lookup(createDependency("1.0")));
+    }
+
+    @Test
+    public void ignoresRulesUnlessEnabled() throws Exception {
+        write(AbstractDependencyMetadataMojo.METADATA_RULES_VERSION, createMetadata("Upgrade to 2.0", "[,2.0)"));
+
+        assertNull(createLookup(false).lookup(createDependency("1.0")));
+    }
+
+    private MetadataLookup createLookup(boolean versionRules) throws MojoExecutionException {
+        MetadataLookup lookup = new MetadataLookup(2, artifactResolver,
+                new RepositoryRouter(null, Collections.<ArtifactRepository>emptyList()), new SessionResolutionCache(),
+                new ExecutionStatistics("verify"));
+        lookup.setVersionRules(versionRules, true);
+        return lookup;
+    }
+
+    private static Artifact createDependency(String version) {
+        return MetadataLookup.createMetadataArtifact("com.example", "library", version);
+    }
+
+    private static Metadata createMetadata(String message, String versionRange) {
+        Metadata metadata = new Metadata();
+        metadata.formatVersion = 2;
+        metadata.fail = true;
+        metadata.message = message;
+        metadata.versionRange = versionRange;
+        return metadata;
+    }
+
+    private void write(String version, Metadata metadata) throws Exception {
+        String artifactId = metadata.versionRange != null ? AbstractDependencyMetadataMojo.getRulesArtifactId(
+                "library") : "library";
+        File file = artifactResolver.getLocalFile(MetadataLookup.createMetadataArtifact("com.example", artifactId,
+                version));
+        assertTrue(file.getParentFile().isDirectory() || file.getParentFile().mkdirs());
+        OBJECT_MAPPER.writeValue(file, metadata);
+    }
+}
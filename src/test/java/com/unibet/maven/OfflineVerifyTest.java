@@ -0,0 +1,214 @@
+package com.unibet.maven;
+
+/*
+ * Copyright 2014 North Development AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.unibet.maven.domain.Metadata;
+import com.unibet.maven.domain.MetadataIndex;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.factory.ArtifactFactory;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.repository.ArtifactRepositoryPolicy;
+import org.apache.maven.artifact.repository.MavenArtifactRepository;
+import org.apache.maven.artifact.repository.layout.DefaultRepositoryLayout;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.repository.internal.MavenRepositorySystemUtils;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.plexus.ContainerConfiguration;
+import org.codehaus.plexus.DefaultContainerConfiguration;
+import org.codehaus.plexus.DefaultPlexusContainer;
+import org.codehaus.plexus.PlexusConstants;
+import org.codehaus.plexus.util.ReflectionUtils;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.repository.LocalRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * <p>Synchronizes metadata from a file based stand-in of a remote repository and verifies dependencies offline
+ * against the local repository the metadata was synchronized into.</p>
+ */
+public class OfflineVerifyTest {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final String GROUP_ID = "com.example";
+    private static final String INDEX = GROUP_ID + ":metadata:1.0";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private DefaultPlexusContainer container;
+    private ArtifactFactory artifactFactory;
+    private RepositorySystem repositorySystem;
+    private DefaultRepositorySystemSession repositorySession;
+    private MavenProject project;
+    private ArtifactRepository localRepository;
+    private ArtifactRepository remoteRepository;
+
+    @Before
+    public void setUp() throws Exception {
+        ContainerConfiguration configuration = new DefaultContainerConfiguration()
+                .setClassPathScanning(PlexusConstants.SCANNING_INDEX).setAutoWiring(true);
+        container = new DefaultPlexusContainer(configuration);
+        artifactFactory = container.lookup(ArtifactFactory.class);
+        repositorySystem = container.lookup(RepositorySystem.class);
+
+        File localDirectory = temporaryFolder.newFolder("local");
+        repositorySession = MavenRepositorySystemUtils.newSession();
+        repositorySession.setLocalRepositoryManager(repositorySystem.newLocalRepositoryManager(repositorySession,
+                new LocalRepository(localDirectory)));
+
+        project = new MavenProject();
+        project.setArtifactId("offline-verify");
+        project.getBuild().setDirectory(temporaryFolder.newFolder("target").getPath());
+        project.setDependencyArtifacts(Collections.singleton(artifactFactory.createArtifact(GROUP_ID, "library",
+                "1.0", Artifact.SCOPE_COMPILE, "jar")));
+
+        localRepository = createRepository("local", localDirectory);
+        File remoteDirectory = temporaryFolder.newFolder("remote");
+        remoteRepository = createRepository("stand-in", remoteDirectory);
+
+        Metadata metadata = new Metadata();
+        metadata.formatVersion = 2;
+        metadata.fail = true;
+        metadata.message = "Library 1.0 has been withdrawn";
+        MetadataIndex index = new MetadataIndex();
+        index.formatVersion = 2;
+        index.groupId = GROUP_ID;
+        index.entries.put(MetadataIndex.key(GROUP_ID, "library", "1.0"), metadata);
+        write(remoteDirectory, "com/example/library/1.0/library-1.0-metadata.json", metadata);
+        write(remoteDirectory, "com/example/metadata/1.0/metadata-1.0-metadata-index.json", index);
+    }
+
+    @After
+    public void tearDown() {
+        container.dispose();
+    }
+
+    @Test
+    public void verifiesSynchronizedMetadataOffline() throws Exception {
+        synchronize();
+        try {
+            verifyOffline(null);
+            fail("Failing metadata synchronized into the local repository was not found offline");
+        } catch (MojoFailureException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void verifiesSynchronizedIndexOffline() throws Exception {
+        synchronize();
+        try {
+            verifyOffline(Collections.singletonList(INDEX));
+            fail("Failing metadata of the index synchronized into the local repository was not found offline");
+        } catch (MojoFailureException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void verifiesNothingOfflineWithoutSynchronization() throws Exception {
+        verifyOffline(null);
+    }
+
+    @Test
+    public void verifiesMetadataSynchronizedAfterPreviousOfflineVerification() throws Exception {
+        verifyOffline(null);
+        synchronize();
+        try {
+            verifyOffline(null);
+            fail("Failing metadata synchronized after previous offline verification was not found");
+        } catch (MojoFailureException e) {
+            // expected
+        }
+    }
+
+    private void synchronize() throws Exception {
+        DependencyMetadataSyncMojo mojo = new DependencyMetadataSyncMojo();
+        configure(mojo);
+        ReflectionUtils.setVariableValueInObject(mojo, "remoteRepositories",
+                Collections.singletonList(remoteRepository));
+        ReflectionUtils.setVariableValueInObject(mojo, "indexes", Collections.singletonList(INDEX));
+        mojo.execute();
+    }
+
+    private void verifyOffline(List<String> indexes) throws Exception {
+        DependencyMetadataVerifyMojo mojo = new DependencyMetadataVerifyMojo();
+        configure(mojo);
+        ReflectionUtils.setVariableValueInObject(mojo, "remoteRepositories",
+                Collections.singletonList(remoteRepository));
+        ReflectionUtils.setVariableValueInObject(mojo, "indexes", indexes);
+        ReflectionUtils.setVariableValueInObject(mojo, "offline", true);
+        // Defaults of the verify goal parameters
+        ReflectionUtils.setVariableValueInObject(mojo, "scope", Artifact.SCOPE_TEST);
+        ReflectionUtils.setVariableValueInObject(mojo, "failFast", true);
+        ReflectionUtils.setVariableValueInObject(mojo, "negativeCache", true);
+        ReflectionUtils.setVariableValueInObject(mojo, "negativeCacheTtlSeconds", 86400L);
+        ReflectionUtils.setVariableValueInObject(mojo, "incremental", false);
+        ReflectionUtils.setVariableValueInObject(mojo, "incrementalFreshnessSeconds", 3600L);
+        ReflectionUtils.setVariableValueInObject(mojo, "versionRules", false);
+        ReflectionUtils.setVariableValueInObject(mojo, "versionLookup", true);
+        ReflectionUtils.setVariableValueInObject(mojo, "parsedCacheMaxBytes", 16777216L);
+        ReflectionUtils.setVariableValueInObject(mojo, "metadataServiceTimeoutSeconds", 30);
+        ReflectionUtils.setVariableValueInObject(mojo, "localStore", false);
+        ReflectionUtils.setVariableValueInObject(mojo, "localStoreTtlSeconds", 86400L);
+        mojo.execute();
+    }
+
+    /**
+     * Sets what Maven would inject into any of the plugin mojos, every mojo is executed in a build of its own
+     */
+    private void configure(AbstractMojo mojo) throws IllegalAccessException {
+        MavenSession session = new MavenSession(container, repositorySession, new DefaultMavenExecutionRequest(),
+                new DefaultMavenExecutionResult());
+        ReflectionUtils.setVariableValueInObject(mojo, "project", project);
+        ReflectionUtils.setVariableValueInObject(mojo, "session", session);
+        ReflectionUtils.setVariableValueInObject(mojo, "localRepository", localRepository);
+        ReflectionUtils.setVariableValueInObject(mojo, "formatVersion", 2);
+        ReflectionUtils.setVariableValueInObject(mojo, "threads", 1);
+        ReflectionUtils.setVariableValueInObject(mojo, "artifactFactory", artifactFactory);
+        ReflectionUtils.setVariableValueInObject(mojo, "repositorySystem", repositorySystem);
+    }
+
+    private static ArtifactRepository createRepository(String id, File directory) {
+        ArtifactRepositoryPolicy policy = new ArtifactRepositoryPolicy(true,
+                ArtifactRepositoryPolicy.UPDATE_POLICY_DAILY, ArtifactRepositoryPolicy.CHECKSUM_POLICY_IGNORE);
+        return new MavenArtifactRepository(id, directory.toURI().toString(), new DefaultRepositoryLayout(), policy,
+                policy);
+    }
+
+    private static void write(File directory, String path, Object value) throws Exception {
+        File file = new File(directory, path);
+        assertTrue(file.getParentFile().mkdirs());
+        OBJECT_MAPPER.writeValue(file, value);
+    }
+}
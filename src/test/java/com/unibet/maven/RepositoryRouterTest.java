@@ -0,0 +1,106 @@
+package com.unibet.maven;
+
+/*
+ * Copyright 2014 North Development AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.repository.ArtifactRepositoryPolicy;
+import org.apache.maven.artifact.repository.MavenArtifactRepository;
+import org.apache.maven.artifact.repository.layout.DefaultRepositoryLayout;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RepositoryRouterTest {
+    private final ArtifactRepository central = createRepository("central");
+    private final ArtifactRepository internal = createRepository("internal");
+
+    @Test
+    public void routesAllRepositoriesWithoutRoutes() throws MojoExecutionException {
+        List<ArtifactRepository> repositories = Arrays.asList(central, internal);
+        assertEquals(repositories, new RepositoryRouter(null, repositories).route("com.example"));
+    }
+
+    @Test
+    public void routesLongestMatchingGroupIdPrefix() throws MojoExecutionException {
+        RepositoryRouter router = new RepositoryRouter(Arrays.asList(createRoute("com.example", "central"),
+                createRoute("com.example.internal", "internal")), Arrays.asList(central, internal));
+
+        assertEquals(Collections.singletonList(central), router.route("com.example"));
+        assertEquals(Collections.singletonList(central), router.route("com.example.public"));
+        assertEquals(Collections.singletonList(internal), router.route("com.example.internal.library"));
+    }
+
+    @Test
+    public void matchesGroupIdPrefixOnSegmentBoundaries() throws MojoExecutionException {
+        RepositoryRouter router = new RepositoryRouter(Collections.singletonList(createRoute("com.example",
+                "central")), Arrays.asList(central, internal));
+
+        assertTrue(router.route("com.examples").isEmpty());
+        assertTrue(router.route("org.example").isEmpty());
+    }
+
+    @Test
+    public void routesMirrorOfRoutedRepositories() throws MojoExecutionException {
+        ArtifactRepository mirror = createRepository("mirror");
+        mirror.setMirroredRepositories(Arrays.asList(central, internal));
+        RepositoryRouter router = new RepositoryRouter(Collections.singletonList(createRoute("com.example",
+                "central", "internal")), Collections.singletonList(mirror));
+
+        assertEquals(Collections.singletonList(mirror), router.route("com.example"));
+    }
+
+    @Test
+    public void skipsUnknownRoutedRepositories() throws MojoExecutionException {
+        RepositoryRouter router = new RepositoryRouter(Collections.singletonList(createRoute("com.example",
+                "unknown", "internal")), Arrays.asList(central, internal));
+
+        assertEquals(Collections.singletonList(internal), router.route("com.example"));
+    }
+
+    @Test(expected = MojoExecutionException.class)
+    public void rejectsRouteWithoutGroupIdPrefix() throws MojoExecutionException {
+        new RepositoryRouter(Collections.singletonList(createRoute(null, "central")),
+                Collections.singletonList(central));
+    }
+
+    @Test(expected = MojoExecutionException.class)
+    public void rejectsRouteWithoutRepositories() throws MojoExecutionException {
+        RepositoryRoute route = new RepositoryRoute();
+        route.setGroupIdPrefix("com.example");
+        new RepositoryRouter(Collections.singletonList(route), Collections.singletonList(central));
+    }
+
+    private static RepositoryRoute createRoute(String groupIdPrefix, String... repositories) {
+        RepositoryRoute route = new RepositoryRoute();
+        route.setGroupIdPrefix(groupIdPrefix);
+        route.setRepositories(Arrays.asList(repositories));
+        return route;
+    }
+
+    private static ArtifactRepository createRepository(String id) {
+        ArtifactRepositoryPolicy policy = new ArtifactRepositoryPolicy(true,
+                ArtifactRepositoryPolicy.UPDATE_POLICY_DAILY, ArtifactRepositoryPolicy.CHECKSUM_POLICY_IGNORE);
+        return new MavenArtifactRepository(id, "http://" + id + ".invalid/", new DefaultRepositoryLayout(), policy,
+                policy);
+    }
+}
@@ -0,0 +1,164 @@
+package com.unibet.maven.cache;
+
+/*
+ * Copyright 2014 North Development AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MappedMetadataStoreTest {
+    private static final int SLOTS = 16;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void getsStoredOutcomes() throws IOException {
+        MappedMetadataStore store = MappedMetadataStore.open(storeFile(), SLOTS);
+
+        store.put("com.example:present:1.0@central", bytes("present"), 1000);
+        store.put("com.example:absent:1.0@central", null, 2000);
+
+        MappedMetadataStore.Entry present = store.get("com.example:present:1.0@central");
+        assertArrayEquals(bytes("present"), present.getMetadata());
+        assertEquals(1000, present.getTimestamp());
+        MappedMetadataStore.Entry absent = store.get("com.example:absent:1.0@central");
+        assertNull(absent.getMetadata());
+        assertEquals(2000, absent.getTimestamp());
+        assertNull(store.get("com.example:present:1.0@internal"));
+        assertNull(store.get("com.example:unknown:1.0@central"));
+    }
+
+    @Test
+    public void replacesOutcomeOfSameKey() throws IOException {
+        MappedMetadataStore store = MappedMetadataStore.open(storeFile(), SLOTS);
+
+        store.put("com.example:library:1.0@central", null, 1000);
+        store.put("com.example:library:1.0@central", bytes("updated"), 2000);
+
+        MappedMetadataStore.Entry entry = store.get("com.example:library:1.0@central");
+        assertArrayEquals(bytes("updated"), entry.getMetadata());
+        assertEquals(2000, entry.getTimestamp());
+    }
+
+    @Test
+    public void keepsOutcomesAcrossReopening() throws IOException {
+        File file = storeFile();
+        MappedMetadataStore.open(file, SLOTS).put("com.example:library:1.0@central", bytes("kept"), 1000);
+
+        assertArrayEquals(bytes("kept"), MappedMetadataStore.open(file, SLOTS)
+                .get("com.example:library:1.0@central").getMetadata());
+    }
+
+    @Test
+    public void expiresOutcomesOlderThanTtl() throws IOException {
+        MappedMetadataStore store = MappedMetadataStore.open(storeFile(), SLOTS);
+        store.put("com.example:library:1.0@central", bytes("metadata"), 1000);
+
+        MappedMetadataStore.Entry entry = store.get("com.example:library:1.0@central");
+        assertTrue(entry.isFresh(500, 1500));
+        assertFalse(entry.isFresh(500, 1501));
+    }
+
+    @Test
+    public void compactsWhenSlotTableFillsUp() throws IOException {
+        MappedMetadataStore store = MappedMetadataStore.open(storeFile(), SLOTS);
+
+        for (int i = 0; i < SLOTS * 2; i++) {
+            store.put(key(i), bytes("metadata-" + i), i);
+        }
+
+        for (int i = 0; i < SLOTS * 2; i++) {
+            MappedMetadataStore.Entry entry = store.get(key(i));
+            assertArrayEquals(bytes("metadata-" + i), entry.getMetadata());
+            assertEquals(i, entry.getTimestamp());
+        }
+        assertFalse(new File(storeFile().getPath() + ".compact").exists());
+    }
+
+    @Test
+    public void compactsSupersededRecords() throws IOException {
+        File file = storeFile();
+        MappedMetadataStore store = MappedMetadataStore.open(file, SLOTS);
+        byte[] metadata = new byte[1024];
+
+        int puts = 2048;
+        for (int i = 0; i < puts; i++) {
+            store.put(key(0), metadata, i);
+        }
+
+        assertEquals(puts - 1, store.get(key(0)).getTimestamp());
+        // Without compaction the record region would have grown to hold all superseded records
+        assertTrue(file.length() < (long) puts * metadata.length);
+    }
+
+    @Test
+    public void reopensStoreCompactedByAnotherUser() throws IOException {
+        File file = storeFile();
+        MappedMetadataStore compacting = MappedMetadataStore.open(file, SLOTS);
+        MappedMetadataStore other = MappedMetadataStore.open(file, SLOTS);
+        other.put(key(0), bytes("before"), 0);
+
+        // Fills the slot table, so the store file is replaced and the file mapped by the other store is obsolete
+        for (int i = 1; i < SLOTS; i++) {
+            compacting.put(key(i), bytes("metadata-" + i), i);
+        }
+
+        assertArrayEquals(bytes("before"), other.get(key(0)).getMetadata());
+        assertArrayEquals(bytes("metadata-" + (SLOTS - 1)), other.get(key(SLOTS - 1)).getMetadata());
+        other.put(key(SLOTS), bytes("after"), SLOTS);
+        assertArrayEquals(bytes("after"), compacting.get(key(SLOTS)).getMetadata());
+    }
+
+    @Test
+    public void sharesStoreOfSameFile() throws IOException {
+        File file = storeFile();
+        assertSame(MappedMetadataStore.forFile(file), MappedMetadataStore.forFile(file.getAbsoluteFile()));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsFileOfOtherFormat() throws IOException {
+        File file = storeFile();
+        assertTrue(file.getParentFile().mkdirs());
+        Files.write(file.toPath(), new byte[64]);
+        MappedMetadataStore.open(file, SLOTS);
+    }
+
+    private File storeFile() {
+        return new File(temporaryFolder.getRoot(), "store" + File.separator + "metadata.store");
+    }
+
+    private static String key(int i) {
+        return "com.example:library-" + i + ":1.0@central";
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
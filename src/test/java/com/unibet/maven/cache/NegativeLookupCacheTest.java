@@ -0,0 +1,175 @@
+package com.unibet.maven.cache;
+
+/*
+ * Copyright 2014 North Development AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.repository.ArtifactRepositoryPolicy;
+import org.apache.maven.artifact.repository.MavenArtifactRepository;
+import org.apache.maven.artifact.repository.layout.DefaultRepositoryLayout;
+import org.apache.maven.artifact.versioning.VersionRange;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class NegativeLookupCacheTest {
+    private static final long TTL = TimeUnit.DAYS.toMillis(1);
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final List<ArtifactRepository> central = Collections.singletonList(createRepository("central"));
+
+    @Test
+    public void trustsMissesWithinTtl() throws IOException {
+        long expired = System.currentTimeMillis() - TTL - 1000;
+        long fresh = System.currentTimeMillis() - TTL + 60000;
+        write("com.example:expired:1.0@central=" + expired, "com.example:fresh:1.0@central=" + fresh);
+        NegativeLookupCache cache = new NegativeLookupCache(cacheFile(), TTL, false);
+        cache.load();
+
+        assertFalse(cache.isMissing(createArtifact("expired", "1.0"), central));
+        assertTrue(cache.isMissing(createArtifact("fresh", "1.0"), central));
+    }
+
+    @Test
+    public void keepsReleaseMissesPermanently() throws IOException {
+        long expired = System.currentTimeMillis() - TTL - 1000;
+        write("com.example:library:1.0@central=" + expired,
+                "com.example:library:1.1-SNAPSHOT@central=" + expired,
+                "com.example:library:1.1-20141003.101500-2@central=" + expired);
+        NegativeLookupCache cache = new NegativeLookupCache(cacheFile(), TTL, true);
+        cache.load();
+
+        assertTrue(cache.isMissing(createArtifact("library", "1.0"), central));
+        assertFalse(cache.isMissing(createArtifact("library", "1.1-SNAPSHOT"), central));
+        assertFalse(cache.isMissing(createArtifact("library", "1.1-20141003.101500-2"), central));
+    }
+
+    @Test
+    public void keepsMissesApartPerRepositories() {
+        ArtifactRepository internal = createRepository("internal");
+        NegativeLookupCache cache = new NegativeLookupCache(cacheFile(), TTL, false);
+        cache.markMissing(createArtifact("library", "1.0"), central);
+
+        assertTrue(cache.isMissing(createArtifact("library", "1.0"), central));
+        assertFalse(cache.isMissing(createArtifact("library", "1.0"), Collections.singletonList(internal)));
+        assertFalse(cache.isMissing(createArtifact("library", "1.0"), Arrays.asList(central.get(0), internal)));
+    }
+
+    @Test
+    public void mergesChangesOfConcurrentWriters() throws Exception {
+        NegativeLookupCache present = new NegativeLookupCache(cacheFile(), TTL, false);
+        present.markMissing(createArtifact("present", "1.0"), central);
+        present.save();
+
+        int writers = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        List<Future<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < writers; i++) {
+            final NegativeLookupCache cache = new NegativeLookupCache(cacheFile(), TTL, false);
+            cache.load();
+            if (i == 0) {
+                cache.markPresent(createArtifact("present", "1.0"), central);
+            }
+            cache.markMissing(createArtifact("library-" + i, "1.0"), central);
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws IOException {
+                    cache.save();
+                    return null;
+                }
+            }));
+        }
+        for (Future<Void> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        NegativeLookupCache merged = new NegativeLookupCache(cacheFile(), TTL, false);
+        merged.load();
+        for (int i = 0; i < writers; i++) {
+            assertTrue(merged.isMissing(createArtifact("library-" + i, "1.0"), central));
+        }
+        assertFalse(merged.isMissing(createArtifact("present", "1.0"), central));
+    }
+
+    @Test
+    public void dropsExpiredEntriesOnSave() throws IOException {
+        write("com.example:expired:1.0@central=" + (System.currentTimeMillis() - TTL - 1000));
+        NegativeLookupCache cache = new NegativeLookupCache(cacheFile(), TTL, false);
+        cache.load();
+        cache.markMissing(createArtifact("library", "1.0"), central);
+        cache.save();
+
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(cacheFile())) {
+            properties.load(in);
+        }
+        assertEquals(Collections.singleton("com.example:library:1.0@central"), properties.stringPropertyNames());
+    }
+
+    private File cacheFile() {
+        return new File(temporaryFolder.getRoot(), "cache" + File.separator + "negative-lookup.properties");
+    }
+
+    private void write(String... lines) throws IOException {
+        File file = cacheFile();
+        assertTrue(file.getParentFile().mkdirs());
+        StringBuilder content = new StringBuilder();
+        for (String line : lines) {
+            // Colons of keys are escaped as Properties#store does
+            content.append(line.replace(":", "\\:")).append('\n');
+        }
+        Files.write(file.toPath(), content.toString().getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private static Artifact createArtifact(String artifactId, String version) {
+        return new DefaultArtifact("com.example", artifactId, VersionRange.createFromVersion(version), null,
+                "json", "metadata", new DefaultArtifactHandler("json"));
+    }
+
+    private static ArtifactRepository createRepository(String id) {
+        ArtifactRepositoryPolicy policy = new ArtifactRepositoryPolicy(true,
+                ArtifactRepositoryPolicy.UPDATE_POLICY_DAILY, ArtifactRepositoryPolicy.CHECKSUM_POLICY_IGNORE);
+        return new MavenArtifactRepository(id, "http://" + id + ".invalid/", new DefaultRepositoryLayout(), policy,
+                policy);
+    }
+}
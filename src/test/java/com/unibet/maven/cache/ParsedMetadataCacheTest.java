@@ -0,0 +1,117 @@
+package com.unibet.maven.cache;
+
+/*
+ * Copyright 2014 North Development AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.unibet.maven.domain.Metadata;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ParsedMetadataCacheTest {
+    // Messages of 10000 characters take 20000 bytes, so the cap fits two entries but not three
+    private static final int MESSAGE_LENGTH = 10000;
+    private static final long TWO_ENTRIES_BYTES = 50000;
+
+    @Test
+    public void returnsMetadataOfUnchangedFile() {
+        ParsedMetadataCache cache = new ParsedMetadataCache(ParsedMetadataCache.DEFAULT_MAX_BYTES);
+        Metadata metadata = createMetadata(10);
+        cache.put(file("a"), 100, 1000, metadata);
+
+        assertSame(metadata, cache.get(file("a"), 100, 1000));
+        assertNull(cache.get(file("b"), 100, 1000));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void invalidatesChangedFile() {
+        ParsedMetadataCache cache = new ParsedMetadataCache(ParsedMetadataCache.DEFAULT_MAX_BYTES);
+        cache.put(file("a"), 100, 1000, createMetadata(10));
+
+        assertNull(cache.get(file("a"), 101, 1000));
+        assertNull(cache.get(file("a"), 100, 1001));
+
+        Metadata updated = createMetadata(10);
+        cache.put(file("a"), 101, 1001, updated);
+        assertSame(updated, cache.get(file("a"), 101, 1001));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedEntries() {
+        ParsedMetadataCache cache = new ParsedMetadataCache(TWO_ENTRIES_BYTES);
+        cache.put(file("a"), 100, 1000, createMetadata(MESSAGE_LENGTH));
+        cache.put(file("b"), 100, 1000, createMetadata(MESSAGE_LENGTH));
+        assertNotNull(cache.get(file("a"), 100, 1000));
+
+        cache.put(file("c"), 100, 1000, createMetadata(MESSAGE_LENGTH));
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get(file("a"), 100, 1000));
+        assertNull(cache.get(file("b"), 100, 1000));
+        assertNotNull(cache.get(file("c"), 100, 1000));
+    }
+
+    @Test
+    public void staysWithinMemoryCap() {
+        ParsedMetadataCache cache = new ParsedMetadataCache(TWO_ENTRIES_BYTES);
+        for (String name : Arrays.asList("a", "b", "c", "d", "e")) {
+            cache.put(file(name), 100, 1000, createMetadata(MESSAGE_LENGTH));
+            assertEquals(Math.min(2, name.charAt(0) - 'a' + 1), cache.size());
+        }
+
+        cache.setMaxBytes(TWO_ENTRIES_BYTES / 2);
+        assertEquals(1, cache.size());
+        assertNotNull(cache.get(file("e"), 100, 1000));
+
+        cache.setMaxBytes(0);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void replacesEntryOfSameFileWithinMemoryCap() {
+        ParsedMetadataCache cache = new ParsedMetadataCache(TWO_ENTRIES_BYTES);
+        cache.put(file("a"), 100, 1000, createMetadata(MESSAGE_LENGTH));
+        for (int i = 1; i <= 5; i++) {
+            cache.put(file("b"), 100, 1000 + i, createMetadata(MESSAGE_LENGTH));
+        }
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get(file("a"), 100, 1000));
+        assertNotNull(cache.get(file("b"), 100, 1005));
+    }
+
+    private static File file(String name) {
+        return new File("metadata", name + "-1.0-metadata.json");
+    }
+
+    private static Metadata createMetadata(int messageLength) {
+        Metadata metadata = new Metadata();
+        metadata.formatVersion = 2;
+        char[] message = new char[messageLength];
+        Arrays.fill(message, 'm');
+        metadata.message = new String(message);
+        return metadata;
+    }
+}
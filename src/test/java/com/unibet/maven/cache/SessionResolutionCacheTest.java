@@ -0,0 +1,183 @@
+package com.unibet.maven.cache;
+
+/*
+ * Copyright 2014 North Development AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.unibet.maven.domain.Metadata;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SessionResolutionCacheTest {
+    private static final String KEY = "com.example:library:json:metadata:1.0@central";
+
+    @Test
+    public void loadsKeyOnceForConcurrentRequests() throws Exception {
+        final SessionResolutionCache cache = new SessionResolutionCache();
+        final Metadata metadata = new Metadata();
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        final Callable<Metadata> loader = new Callable<Metadata>() {
+            @Override
+            public Metadata call() throws InterruptedException {
+                loads.incrementAndGet();
+                assertTrue(release.await(10, TimeUnit.SECONDS));
+                return metadata;
+            }
+        };
+
+        int requests = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(requests);
+        List<Future<Metadata>> futures = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            futures.add(executor.submit(new Callable<Metadata>() {
+                @Override
+                public Metadata call() throws Exception {
+                    return cache.get(KEY, loader);
+                }
+            }));
+        }
+        // Lets all requests reach the cache while the first load is still running
+        Thread.sleep(200);
+        release.countDown();
+        for (Future<Metadata> future : futures) {
+            assertSame(metadata, future.get(10, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getMisses());
+        assertEquals(requests - 1, cache.getHits());
+    }
+
+    @Test
+    public void cachesAbsenceOfMetadata() throws Exception {
+        SessionResolutionCache cache = new SessionResolutionCache();
+        AtomicInteger loads = new AtomicInteger();
+
+        assertNull(cache.get(KEY, countingLoader(loads, null)));
+        assertNull(cache.get(KEY, countingLoader(loads, null)));
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void doesNotCacheFailedLoads() throws Exception {
+        SessionResolutionCache cache = new SessionResolutionCache();
+        try {
+            cache.get(KEY, new Callable<Metadata>() {
+                @Override
+                public Metadata call() throws IOException {
+                    throw new IOException("Repository not available");
+                }
+            });
+            fail("Failed load was not reported");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+
+        Metadata metadata = new Metadata();
+        AtomicInteger loads = new AtomicInteger();
+        assertSame(metadata, cache.get(KEY, countingLoader(loads, metadata)));
+        assertEquals(1, loads.get());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void retriesLoadOfWaiterWhenOwnerFails() throws Exception {
+        final SessionResolutionCache cache = new SessionResolutionCache();
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<Metadata> owner = executor.submit(new Callable<Metadata>() {
+            @Override
+            public Metadata call() throws Exception {
+                return cache.get(KEY, new Callable<Metadata>() {
+                    @Override
+                    public Metadata call() throws Exception {
+                        loading.countDown();
+                        assertTrue(release.await(10, TimeUnit.SECONDS));
+                        throw new IOException("Repository not available");
+                    }
+                });
+            }
+        });
+        assertTrue(loading.await(10, TimeUnit.SECONDS));
+        final Metadata metadata = new Metadata();
+        final AtomicInteger loads = new AtomicInteger();
+        Future<Metadata> waiter = executor.submit(new Callable<Metadata>() {
+            @Override
+            public Metadata call() throws Exception {
+                return cache.get(KEY, countingLoader(loads, metadata));
+            }
+        });
+        Thread.sleep(200);
+        release.countDown();
+
+        try {
+            owner.get(10, TimeUnit.SECONDS);
+            fail("Failed load was not reported to its owner");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause().getCause() instanceof IOException);
+        }
+        assertSame(metadata, waiter.get(10, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+        executor.shutdown();
+    }
+
+    @Test
+    public void bindsCacheToSession() {
+        MavenSession session = new MavenSession(null, null, new DefaultMavenExecutionRequest(),
+                new DefaultMavenExecutionResult());
+        SessionResolutionCache cache = SessionResolutionCache.forSession(session);
+
+        assertSame(cache, SessionResolutionCache.forSession(session));
+        assertSame(cache, SessionResolutionCache.remove(session));
+        assertNull(SessionResolutionCache.remove(session));
+        assertNotSame(cache, SessionResolutionCache.forSession(session));
+        SessionResolutionCache.remove(session);
+    }
+
+    private static Callable<Metadata> countingLoader(final AtomicInteger loads, final Metadata metadata) {
+        return new Callable<Metadata>() {
+            @Override
+            public Metadata call() {
+                loads.incrementAndGet();
+                return metadata;
+            }
+        };
+    }
+}
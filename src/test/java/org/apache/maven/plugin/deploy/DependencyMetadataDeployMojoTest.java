@@ -0,0 +1,164 @@
+package org.apache.maven.plugin.deploy;
+
+/*
+ * Copyright 2014 North Development AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.factory.ArtifactFactory;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.repository.ArtifactRepositoryFactory;
+import org.apache.maven.artifact.repository.ArtifactRepositoryPolicy;
+import org.apache.maven.artifact.repository.MavenArtifactRepository;
+import org.apache.maven.artifact.repository.layout.ArtifactRepositoryLayout;
+import org.apache.maven.artifact.repository.layout.DefaultRepositoryLayout;
+import org.apache.maven.artifact.repository.metadata.Metadata;
+import org.apache.maven.artifact.repository.metadata.io.xpp3.MetadataXpp3Reader;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.repository.internal.MavenRepositorySystemUtils;
+import org.codehaus.plexus.ContainerConfiguration;
+import org.codehaus.plexus.DefaultContainerConfiguration;
+import org.codehaus.plexus.DefaultPlexusContainer;
+import org.codehaus.plexus.PlexusConstants;
+import org.codehaus.plexus.util.ReflectionUtils;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.repository.LocalRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <p>Deploys metadata artifacts of several versions into a file based stand-in of a remote repository.</p>
+ */
+public class DependencyMetadataDeployMojoTest {
+    private static final String GROUP_ID = "com.example";
+    private static final String ARTIFACT_ID = "library";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private DefaultPlexusContainer container;
+    private ArtifactFactory artifactFactory;
+    private MavenProject project;
+    private File remoteDirectory;
+
+    @Before
+    public void setUp() throws Exception {
+        ContainerConfiguration configuration = new DefaultContainerConfiguration()
+                .setClassPathScanning(PlexusConstants.SCANNING_INDEX).setAutoWiring(true);
+        container = new DefaultPlexusContainer(configuration);
+        artifactFactory = container.lookup(ArtifactFactory.class);
+
+        remoteDirectory = temporaryFolder.newFolder("remote");
+        ArtifactRepositoryPolicy policy = new ArtifactRepositoryPolicy(true,
+                ArtifactRepositoryPolicy.UPDATE_POLICY_DAILY, ArtifactRepositoryPolicy.CHECKSUM_POLICY_IGNORE);
+        ArtifactRepository repository = new MavenArtifactRepository("stand-in", remoteDirectory.toURI().toString(),
+                new DefaultRepositoryLayout(), policy, policy);
+
+        project = new MavenProject();
+        project.setGroupId(GROUP_ID);
+        project.setArtifactId(ARTIFACT_ID);
+        project.setVersion("1.1");
+        project.setArtifact(artifactFactory.createBuildArtifact(GROUP_ID, ARTIFACT_ID, "1.1", "jar"));
+        project.getBuild().setDirectory(temporaryFolder.newFolder("target").getPath());
+        project.setReleaseArtifactRepository(repository);
+        attach("1.0", "{\"message\":\"withdrawn\"}");
+        attach("1.1", "{\"message\":\"deprecated\"}");
+    }
+
+    @After
+    public void tearDown() {
+        container.dispose();
+    }
+
+    @Test
+    public void deploysAllVersionsIntoRepositoryMetadata() throws Exception {
+        execute();
+
+        assertTrue(new File(remoteDirectory, "com/example/library/1.0/library-1.0-metadata.json").isFile());
+        assertTrue(new File(remoteDirectory, "com/example/library/1.1/library-1.1-metadata.json").isFile());
+        try (InputStream in = new FileInputStream(new File(remoteDirectory,
+                "com/example/library/maven-metadata.xml"))) {
+            Metadata metadata = new MetadataXpp3Reader().read(in);
+            assertEquals(Arrays.asList("1.0", "1.1"), metadata.getVersioning().getVersions());
+        }
+    }
+
+    @Test
+    public void skipsArtifactsWithDeployedChecksum() throws Exception {
+        execute();
+        File deployed = new File(remoteDirectory, "com/example/library/1.0/library-1.0-metadata.json");
+        File changed = new File(remoteDirectory, "com/example/library/1.1/library-1.1-metadata.json");
+        assertTrue(deployed.setLastModified(0));
+        assertTrue(changed.setLastModified(0));
+        write("1.1", "{\"message\":\"withdrawn\"}");
+
+        execute();
+
+        assertEquals(0, deployed.lastModified());
+        assertEquals("{\"message\":\"withdrawn\"}", new String(Files.readAllBytes(changed.toPath()),
+                StandardCharsets.UTF_8));
+    }
+
+    private void execute() throws Exception {
+        RepositorySystem repositorySystem = container.lookup(RepositorySystem.class);
+        DefaultRepositorySystemSession repositorySession = MavenRepositorySystemUtils.newSession();
+        repositorySession.setLocalRepositoryManager(repositorySystem.newLocalRepositoryManager(repositorySession,
+                new LocalRepository(temporaryFolder.newFolder())));
+        MavenSession session = new MavenSession(container, repositorySession, new DefaultMavenExecutionRequest(),
+                new DefaultMavenExecutionResult());
+
+        DependencyMetadataDeployMojo mojo = new DependencyMetadataDeployMojo();
+        ReflectionUtils.setVariableValueInObject(mojo, "project", project);
+        ReflectionUtils.setVariableValueInObject(mojo, "session", session);
+        ReflectionUtils.setVariableValueInObject(mojo, "threads", 2);
+        ReflectionUtils.setVariableValueInObject(mojo, "skipUnchanged", true);
+        ReflectionUtils.setVariableValueInObject(mojo, "artifactFactory", artifactFactory);
+        ReflectionUtils.setVariableValueInObject(mojo, "repositorySystem", repositorySystem);
+        ReflectionUtils.setVariableValueInObject(mojo, "repositoryFactory",
+                container.lookup(ArtifactRepositoryFactory.class));
+        ReflectionUtils.setVariableValueInObject(mojo, "repositoryLayouts",
+                container.lookupMap(ArtifactRepositoryLayout.class));
+        mojo.execute();
+    }
+
+    private void attach(String version, String content) throws Exception {
+        Artifact artifact = artifactFactory.createArtifactWithClassifier(GROUP_ID, ARTIFACT_ID, version, "json",
+                "metadata");
+        project.addAttachedArtifact(artifact);
+        write(version, content);
+    }
+
+    private void write(String version, String content) throws Exception {
+        Files.write(new File(project.getBuild().getDirectory(), ARTIFACT_ID + "-" + version + "-metadata.json")
+                .toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}